@@ -0,0 +1,66 @@
+package com.nicolaslopez82.sms.benchmarks;
+
+import com.nicolaslopez82.sms.domain.Role;
+import com.nicolaslopez82.sms.security.JwtProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Issue and verify JSON Web Tokens, with and without the cache of verified tokens.
+ *
+ * @author nicolaslopez
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtProviderBenchmark {
+
+    /** maximum number of cached verified tokens, 0 verifies the signature on every call */
+    @Param({"0", "10000"})
+    public int cacheSize;
+
+    private JwtProvider jwtProvider;
+    private List<Role> roles;
+    private String token;
+
+    @Setup
+    public void setup() {
+        jwtProvider = new JwtProvider("secret-key-for-encryption", 600000, cacheSize);
+        Role role = new Role();
+        role.setRoleName("ROLE_CSR");
+        roles = Collections.singletonList(role);
+        token = jwtProvider.createToken("csr_jane", roles);
+    }
+
+    @Benchmark
+    public String createToken() {
+        return jwtProvider.createToken("csr_jane", roles);
+    }
+
+    @Benchmark
+    public boolean isValidToken() {
+        return jwtProvider.isValidToken(token);
+    }
+
+    @Benchmark
+    public List<GrantedAuthority> getRoles() {
+        return jwtProvider.getRoles(token);
+    }
+}
@@ -0,0 +1,89 @@
+package com.nicolaslopez82.sms.benchmarks;
+
+import com.nicolaslopez82.sms.domain.Role;
+import com.nicolaslopez82.sms.repository.RevokedTokenRepository;
+import com.nicolaslopez82.sms.security.JwtProvider;
+import com.nicolaslopez82.sms.security.JwtTokenFilter;
+import com.nicolaslopez82.sms.security.TokenRevocationList;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import javax.servlet.ServletException;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Authenticate a request carrying a Bearer token, as done for every secured API call,
+ * with other users' tokens revoked.
+ *
+ * @author nicolaslopez
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtTokenFilterBenchmark {
+
+    /** maximum number of cached verified tokens, 0 verifies the signature on every request */
+    @Param({"0", "10000"})
+    public int cacheSize;
+
+    /** number of users whose tokens are revoked, the request token is not */
+    @Param({"0", "10000"})
+    public int revokedUsers;
+
+    private JwtTokenFilter filter;
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+
+    @Setup
+    public void setup() {
+        JwtProvider jwtProvider = new JwtProvider("secret-key-for-encryption", 600000, cacheSize);
+        TokenRevocationList tokenRevocationList = new TokenRevocationList(inMemoryRevokedTokenRepository(), 600000, 100000);
+        for (int i = 0; i < revokedUsers; i++) {
+            tokenRevocationList.revokeUser("user" + i);
+        }
+        filter = new JwtTokenFilter(jwtProvider, tokenRevocationList);
+
+        Role role = new Role();
+        role.setRoleName("ROLE_CSR");
+        request = new MockHttpServletRequest("POST", "/tours/1/ratings");
+        request.addHeader("Authorization", "Bearer " + jwtProvider.createToken("csr_jane", Collections.singletonList(role)));
+        response = new MockHttpServletResponse();
+    }
+
+    @Benchmark
+    public Authentication doFilter() throws IOException, ServletException {
+        filter.doFilter(request, response, new MockFilterChain());
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        SecurityContextHolder.clearContext();
+        return authentication;
+    }
+
+    /**
+     * Repository saving nothing, the revocations are only held in memory.
+     */
+    private static RevokedTokenRepository inMemoryRevokedTokenRepository() {
+        return (RevokedTokenRepository) Proxy.newProxyInstance(RevokedTokenRepository.class.getClassLoader(),
+                new Class<?>[]{RevokedTokenRepository.class},
+                (proxy, method, args) -> method.getName().equals("save") ? args[0] : null);
+    }
+}
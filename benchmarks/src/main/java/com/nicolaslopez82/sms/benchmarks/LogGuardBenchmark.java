@@ -0,0 +1,56 @@
+package com.nicolaslopez82.sms.benchmarks;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of a disabled DEBUG message of rateMany, building its argument eagerly or behind isDebugEnabled.
+ * Run with -prof gc to see the allocation rate.
+ *
+ * @author nicolaslopez
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LogGuardBenchmark {
+
+    private Logger logger;
+    private Integer[] customers;
+
+    @Setup
+    public void setup() {
+        logger = new LoggerContext().getLogger("com.nicolaslopez82.sms.service.TourRatingService");
+        logger.setLevel(Level.INFO);
+        customers = new Integer[100];
+        Arrays.setAll(customers, i -> 1000 + i);
+    }
+
+    @Benchmark
+    public void eager() {
+        logger.debug("Rate tour {} by customers {}", 1, Arrays.asList(customers).toString());
+    }
+
+    @Benchmark
+    public void guarded() {
+        if (logger.isDebugEnabled()) {
+            logger.debug("Rate tour {} by customers {}", 1, Arrays.toString(customers));
+        }
+    }
+}
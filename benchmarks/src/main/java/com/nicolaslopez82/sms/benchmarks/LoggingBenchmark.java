@@ -0,0 +1,111 @@
+package com.nicolaslopez82.sms.benchmarks;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.FileAppender;
+import ch.qos.logback.core.encoder.Encoder;
+import com.nicolaslopez82.sms.logging.DroppingAsyncAppender;
+import net.logstash.logback.encoder.LogstashEncoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of request threads logging one INFO line each, with the synchronous pattern appender
+ * of the development profile or the asynchronous JSON appender of the prod profile.
+ *
+ * The async pipeline never blocks, events dropped when its queue is full count as logged.
+ *
+ * @author nicolaslopez
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class LoggingBenchmark {
+
+    /** sync: the request thread writes the file, async: the request thread enqueues the event */
+    @Param({"sync", "async"})
+    public String pipeline;
+
+    /** pattern: development file pattern (with the caller class), json: LogstashEncoder */
+    @Param({"pattern", "json"})
+    public String format;
+
+    private File file;
+    private LoggerContext context;
+    private Logger logger;
+
+    @Setup
+    public void setup() throws IOException {
+        file = File.createTempFile("logging-benchmark", ".log");
+        context = new LoggerContext();
+
+        FileAppender<ILoggingEvent> fileAppender = new FileAppender<>();
+        fileAppender.setContext(context);
+        fileAppender.setFile(file.getAbsolutePath());
+        fileAppender.setEncoder(encoder());
+        fileAppender.start();
+
+        Appender<ILoggingEvent> appender = fileAppender;
+        if ("async".equals(pipeline)) {
+            DroppingAsyncAppender asyncAppender = new DroppingAsyncAppender();
+            asyncAppender.setContext(context);
+            asyncAppender.setQueueSize(8192);
+            asyncAppender.setDiscardingThreshold(1638);
+            asyncAppender.setNeverBlock(true);
+            asyncAppender.addAppender(fileAppender);
+            asyncAppender.start();
+            appender = asyncAppender;
+        }
+        logger = context.getLogger("com.nicolaslopez82.sms.web.TourRatingController");
+        logger.setLevel(Level.INFO);
+        logger.addAppender(appender);
+    }
+
+    private Encoder<ILoggingEvent> encoder() {
+        if ("json".equals(format)) {
+            LogstashEncoder encoder = new LogstashEncoder();
+            encoder.setContext(context);
+            encoder.start();
+            return encoder;
+        }
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern("%d %p %C{1.} [%t] %m%n");
+        encoder.start();
+        return encoder;
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.stop();
+        file.delete();
+    }
+
+    @Benchmark
+    public void info() {
+        logger.info("GET /tours/{}/ratings/average", 1);
+    }
+}
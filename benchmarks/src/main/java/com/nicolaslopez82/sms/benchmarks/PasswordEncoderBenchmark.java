@@ -0,0 +1,58 @@
+package com.nicolaslopez82.sms.benchmarks;
+
+import com.nicolaslopez82.sms.security.PasswordEncoders;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Password hashes per second per core of each password encoder setting, i.e. the sign in (matches)
+ * and sign up (encode) capacity of one core of the password encoder pool.
+ *
+ * @author nicolaslopez
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Threads(1)
+@Fork(1)
+public class PasswordEncoderBenchmark {
+
+    /** encoding of the hashes, with the BCrypt strength after the colon */
+    @Param({"bcrypt:10", "bcrypt:12", "bcrypt:14", "pbkdf2"})
+    public String setting;
+
+    private PasswordEncoder passwordEncoder;
+    private String encoded;
+
+    @Setup
+    public void setup() {
+        String[] parts = setting.split(":");
+        passwordEncoder = PasswordEncoders.delegating(parts[0], parts.length > 1 ? Integer.parseInt(parts[1]) : 12);
+        encoded = passwordEncoder.encode("letmein");
+    }
+
+    @Benchmark
+    public boolean matches() {
+        return passwordEncoder.matches("letmein", encoded);
+    }
+
+    @Benchmark
+    public String encode() {
+        return passwordEncoder.encode("letmein");
+    }
+}
@@ -0,0 +1,68 @@
+package com.nicolaslopez82.sms.benchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nicolaslopez82.sms.domain.TourRating;
+import com.nicolaslopez82.sms.web.RatingDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Map a page of TourRatings to RatingDtos and serialize them to JSON, as done by the rating listings.
+ *
+ * @author nicolaslopez
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RatingDtoBenchmark {
+
+    /** number of ratings in the page */
+    @Param({"20", "1000"})
+    public int size;
+
+    private ObjectMapper objectMapper = new ObjectMapper();
+    private List<TourRating> ratings;
+    private List<RatingDto> dtos;
+
+    @Setup
+    public void setup() {
+        ratings = new ArrayList<>(size);
+        for (int customerId = 0; customerId < size; customerId++) {
+            ratings.add(new TourRating(null, customerId, customerId % 6, "Comment " + customerId));
+        }
+        dtos = toDtos();
+    }
+
+    @Benchmark
+    public List<RatingDto> toDtos() {
+        return ratings.stream().map(RatingDto::new).collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public byte[] serialize() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(dtos);
+    }
+
+    @Benchmark
+    public byte[] toDtosAndSerialize() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(toDtos());
+    }
+}
@@ -0,0 +1,130 @@
+package com.nicolaslopez82.sms.benchmarks;
+
+import com.nicolaslopez82.sms.SpringMicroserviceSkeletonApplication;
+import com.nicolaslopez82.sms.repository.TourRatingJdbcRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load test of GET /tours/{tourId}/ratings over HTTP, with the requests on Tomcat's worker pool
+ * (platform) or on virtual threads (virtual, needs a Java 21 JVM).
+ *
+ * 400 client threads keep as many requests in flight, more than the 200 Tomcat workers. The embedded
+ * H2 database answers in microseconds, so every request also waits latency milliseconds, standing in
+ * for the round trip to MySQL; with latency the platform mode is capped at 200 requests per latency.
+ *
+ * @author nicolaslopez
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dhttp.maxConnections=500")
+@Threads(400)
+public class RatingReadLoadBenchmark {
+
+    private static final int TOUR_ID = 1;
+    private static final int FIRST_CUSTOMER = 1000;
+    private static final int RATINGS = 1000;
+
+    @Param({"platform", "virtual"})
+    public String threads;
+
+    /** milliseconds every request waits, as for a database round trip */
+    @Param({"0", "20"})
+    public int latency;
+
+    private ServletWebServerApplicationContext context;
+    private URL ratingsPage;
+
+    @Setup
+    public void setup() throws IOException {
+        context = (ServletWebServerApplicationContext) new SpringApplicationBuilder(SpringMicroserviceSkeletonApplication.class)
+                .profiles("benchmark")
+                .properties("server.port=0",
+                        "com.nicolaslopez82.sms.virtual-threads.enabled=" + threads.equals("virtual"))
+                .initializers(context -> context.getBeanFactory().registerSingleton("latencyFilter", new LatencyFilter(latency)))
+                .run();
+        List<Integer> customers = new ArrayList<>();
+        for (int customerId = FIRST_CUSTOMER; customerId < FIRST_CUSTOMER + RATINGS; customerId++) {
+            customers.add(customerId);
+        }
+        context.getBean(TourRatingJdbcRepository.class).insertAll(TOUR_ID, 4, null, customers, 1000);
+        ratingsPage = new URL("http://localhost:" + context.getWebServer().getPort()
+                + "/tours/" + TOUR_ID + "/ratings?page=2&size=20");
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int getRatings() throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) ratingsPage.openConnection();
+        int length = 0;
+        //read the whole body so the connection is kept alive
+        try (InputStream in = connection.getInputStream()) {
+            byte[] buffer = new byte[8192];
+            for (int read; (read = in.read(buffer)) >= 0; ) {
+                length += read;
+            }
+        }
+        if (connection.getResponseCode() != 200) {
+            throw new IllegalStateException("HTTP " + connection.getResponseCode());
+        }
+        return length;
+    }
+
+    /**
+     * Wait before handling every request.
+     */
+    private static class LatencyFilter extends OncePerRequestFilter {
+
+        private final int latency;
+
+        LatencyFilter(int latency) {
+            this.latency = latency;
+        }
+
+        @Override
+        protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+                throws ServletException, IOException {
+            if (latency > 0) {
+                try {
+                    Thread.sleep(latency);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            chain.doFilter(request, response);
+        }
+    }
+}
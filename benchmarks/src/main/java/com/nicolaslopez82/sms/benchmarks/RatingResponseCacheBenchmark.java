@@ -0,0 +1,93 @@
+package com.nicolaslopez82.sms.benchmarks;
+
+import com.nicolaslopez82.sms.SpringMicroserviceSkeletonApplication;
+import com.nicolaslopez82.sms.repository.TourRatingJdbcRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the first page of GET /tours/{tourId}/ratings and of /average over HTTP, with the
+ * RatingResponseCache disabled (maxBytes = 0) or serving the pre-serialized JSON, on the embedded H2 database.
+ *
+ * @author nicolaslopez
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dhttp.maxConnections=50")
+@Threads(16)
+public class RatingResponseCacheBenchmark {
+
+    private static final int TOUR_ID = 1;
+    private static final int FIRST_CUSTOMER = 1000;
+    private static final int RATINGS = 1000;
+
+    /** com.nicolaslopez82.sms.ratings.response-cache.max-bytes */
+    @Param({"0", "33554432"})
+    public long maxBytes;
+
+    @Param({"ratings?size=20", "ratings/average"})
+    public String path;
+
+    private ServletWebServerApplicationContext context;
+    private URL url;
+
+    @Setup
+    public void setup() throws IOException {
+        context = (ServletWebServerApplicationContext) new SpringApplicationBuilder(SpringMicroserviceSkeletonApplication.class)
+                .profiles("benchmark")
+                .properties("server.port=0", "com.nicolaslopez82.sms.ratings.response-cache.max-bytes=" + maxBytes)
+                .run();
+        List<Integer> customers = new ArrayList<>();
+        for (int customerId = FIRST_CUSTOMER; customerId < FIRST_CUSTOMER + RATINGS; customerId++) {
+            customers.add(customerId);
+        }
+        context.getBean(TourRatingJdbcRepository.class).insertAll(TOUR_ID, 4, null, customers, 1000);
+        url = new URL("http://localhost:" + context.getWebServer().getPort() + "/tours/" + TOUR_ID + "/" + path);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int get() throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        int length = 0;
+        //read the whole body so the connection is kept alive
+        try (InputStream in = connection.getInputStream()) {
+            byte[] buffer = new byte[8192];
+            for (int read; (read = in.read(buffer)) >= 0; ) {
+                length += read;
+            }
+        }
+        if (connection.getResponseCode() != 200) {
+            throw new IllegalStateException("HTTP " + connection.getResponseCode());
+        }
+        return length;
+    }
+}
@@ -0,0 +1,103 @@
+package com.nicolaslopez82.sms.benchmarks;
+
+import com.nicolaslopez82.sms.SpringMicroserviceSkeletonApplication;
+import com.nicolaslopez82.sms.repository.TourRatingJdbcRepository;
+import com.nicolaslopez82.sms.security.JwtProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load test of the ratings of a tour over HTTP, read by the blocking GET /tours/{tourId}/ratings/ratings/tour
+ * (JPA on the request thread) or by the reactive GET /rx/tours/{tourId}/ratings (R2DBC), with Tomcat limited
+ * to 8 request threads and 200 client threads, on the embedded H2 database.
+ *
+ * @author nicolaslopez
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dhttp.maxConnections=250")
+@Threads(200)
+public class ReactiveRatingReadBenchmark {
+
+    private static final int TOUR_ID = 1;
+    private static final int FIRST_CUSTOMER = 1000;
+
+    @Param({"blocking", "reactive"})
+    public String api;
+
+    /** ratings of the tour, all returned by every request */
+    @Param({"100"})
+    public int ratings;
+
+    private ServletWebServerApplicationContext context;
+    private URL ratingsOfTour;
+    private String bearer;
+
+    @Setup
+    public void setup() throws IOException {
+        context = (ServletWebServerApplicationContext) new SpringApplicationBuilder(SpringMicroserviceSkeletonApplication.class)
+                .profiles("benchmark")
+                .properties("server.port=0", "server.tomcat.threads.max=8", "server.tomcat.threads.min-spare=8")
+                .run();
+        List<Integer> customers = new ArrayList<>();
+        for (int customerId = FIRST_CUSTOMER; customerId < FIRST_CUSTOMER + ratings; customerId++) {
+            customers.add(customerId);
+        }
+        context.getBean(TourRatingJdbcRepository.class).insertAll(TOUR_ID, 4, null, customers, 1000);
+        bearer = "Bearer " + context.getBean(JwtProvider.class)
+                .createToken("csr_jane", Collections.singletonList(new SimpleGrantedAuthority("ROLE_CSR")));
+        String path = api.equals("reactive") ? "/rx/tours/" + TOUR_ID + "/ratings"
+                : "/tours/" + TOUR_ID + "/ratings/ratings/tour";
+        ratingsOfTour = new URL("http://localhost:" + context.getWebServer().getPort() + path);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int getRatingsOfTour() throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) ratingsOfTour.openConnection();
+        connection.setRequestProperty("Authorization", bearer);
+        connection.setRequestProperty("Accept", "application/json");
+        int length = 0;
+        //read the whole body so the connection is kept alive
+        try (InputStream in = connection.getInputStream()) {
+            byte[] buffer = new byte[8192];
+            for (int read; (read = in.read(buffer)) >= 0; ) {
+                length += read;
+            }
+        }
+        if (connection.getResponseCode() != 200) {
+            throw new IllegalStateException("HTTP " + connection.getResponseCode());
+        }
+        return length;
+    }
+}
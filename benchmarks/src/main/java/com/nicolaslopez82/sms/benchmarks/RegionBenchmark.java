@@ -0,0 +1,51 @@
+package com.nicolaslopez82.sms.benchmarks;
+
+import com.nicolaslopez82.sms.domain.Region;
+import com.nicolaslopez82.sms.domain.RegionConverter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Map Region labels to the enumeration and back, as done for every Tour read or written.
+ *
+ * @author nicolaslopez
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RegionBenchmark {
+
+    /** first and last region labels, and a label that does not exist */
+    @Param({"Central Coast", "Varies", "Napa/Sonoma Counties"})
+    public String label;
+
+    private RegionConverter converter = new RegionConverter();
+
+    @Benchmark
+    public Region findByLabel() {
+        return Region.findByLabel(label);
+    }
+
+    @Benchmark
+    public Region convertToEntityAttribute() {
+        return converter.convertToEntityAttribute(label);
+    }
+
+    @Benchmark
+    public String convertToDatabaseColumn() {
+        return converter.convertToDatabaseColumn(Region.Northern_California);
+    }
+}
@@ -0,0 +1,127 @@
+package com.nicolaslopez82.sms.benchmarks;
+
+import com.nicolaslopez82.sms.SpringMicroserviceSkeletonApplication;
+import com.nicolaslopez82.sms.domain.Tour;
+import com.nicolaslopez82.sms.domain.TourRating;
+import com.nicolaslopez82.sms.repository.ScoreCount;
+import com.nicolaslopez82.sms.repository.TourRatingJdbcRepository;
+import com.nicolaslopez82.sms.repository.TourRatingRepository;
+import com.nicolaslopez82.sms.service.TourRatingService;
+import com.nicolaslopez82.sms.web.RatingDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalDouble;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Average score and ratings of a Tour rated by a configurable number of customers, in the embedded H2
+ * database of the benchmark profile.
+ *
+ * getAverage is the service (served by the rating aggregates); loadAllAndAverage and groupByScore
+ * are the database work it replaces, for comparison. getAllRatingsForTour and getRatings select
+ * RatingDto projections; loadAllEntities and loadEntityPage hydrate the TourRatings they replace.
+ *
+ * @author nicolaslopez
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TourRatingServiceBenchmark {
+
+    private static final int TOUR_ID = 1;
+    private static final int FIRST_CUSTOMER = 1000;
+
+    /** number of ratings of the tour */
+    @Param({"1000", "100000"})
+    public int ratings;
+
+    private ConfigurableApplicationContext context;
+    private TourRatingService tourRatingService;
+    private TourRatingRepository tourRatingRepository;
+    private Tour tour;
+    private Pageable page = PageRequest.of(2, 20);
+
+    @Setup
+    public void setup() {
+        context = new SpringApplicationBuilder(SpringMicroserviceSkeletonApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles("benchmark")
+                .run();
+        tourRatingService = context.getBean(TourRatingService.class);
+        tourRatingRepository = context.getBean(TourRatingRepository.class);
+        TourRatingJdbcRepository tourRatingJdbcRepository = context.getBean(TourRatingJdbcRepository.class);
+        //customer c gives the score c % 6
+        for (int score = 0; score <= 5; score++) {
+            List<Integer> customers = new ArrayList<>();
+            for (int customerId = FIRST_CUSTOMER + score; customerId < FIRST_CUSTOMER + ratings; customerId += 6) {
+                customers.add(customerId);
+            }
+            tourRatingJdbcRepository.insertAll(TOUR_ID, score, null, customers, 1000);
+        }
+        tour = tourRatingService.verifyTour(TOUR_ID);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Map<String, Double> getAverage() {
+        return tourRatingService.getAverage(tour);
+    }
+
+    @Benchmark
+    public OptionalDouble loadAllAndAverage() {
+        return tourRatingRepository.findByTourId(TOUR_ID).stream().mapToInt(TourRating::getScore).average();
+    }
+
+    @Benchmark
+    public List<ScoreCount> groupByScore() {
+        return tourRatingRepository.countScoresByTourId(TOUR_ID);
+    }
+
+    @Benchmark
+    public List<RatingDto> getAllRatingsForTour() {
+        return tourRatingService.getAllRatingsForTour(tour);
+    }
+
+    @Benchmark
+    public List<RatingDto> loadAllEntities() {
+        return tourRatingRepository.findByTourId(TOUR_ID).stream().map(RatingDto::new).collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public Page<RatingDto> getRatings() {
+        return tourRatingService.getRatings(tour, page);
+    }
+
+    @Benchmark
+    public Page<RatingDto> loadEntityPage() {
+        return tourRatingRepository.findByTourId(TOUR_ID, page).map(RatingDto::new);
+    }
+}
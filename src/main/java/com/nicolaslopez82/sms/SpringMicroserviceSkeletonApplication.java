@@ -2,8 +2,12 @@ package com.nicolaslopez82.sms;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
-@SpringBootApplication
+//a ConnectionFactory bean would turn off the DataSource auto-configuration, see ReactiveTourRatingRepository
+@SpringBootApplication(exclude = R2dbcAutoConfiguration.class)
+@EnableScheduling
 public class SpringMicroserviceSkeletonApplication {
 
 	public static void main(String[] args) {
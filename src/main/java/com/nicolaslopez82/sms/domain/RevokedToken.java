@@ -0,0 +1,65 @@
+package com.nicolaslopez82.sms.domain;
+
+import javax.persistence.*;
+
+/**
+ * Revoked Java Web Token Entity: a single token by its identifier (jti), or every token of a user
+ * issued up to the revocation when the token identifier is null. Kept until the revoked tokens expire.
+ */
+@Entity
+@Table(name = "revoked_token")
+public class RevokedToken {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id")
+    private Long id;
+
+    @Column(name = "token_id")
+    private String tokenId;
+
+    @Column(name = "username")
+    private String username;
+
+    @Column(name = "revoked_at")
+    private long revokedAt;
+
+    @Column(name = "expires_at")
+    private long expiresAt;
+
+    protected RevokedToken() {
+    }
+
+    /**
+     * @param tokenId identifier of the token, null to revoke every token of the user
+     * @param username subject of the tokens, may be null for a single token
+     * @param revokedAt revocation time in epoch milliseconds
+     * @param expiresAt expiration of the revoked tokens in epoch milliseconds
+     */
+    public RevokedToken(String tokenId, String username, long revokedAt, long expiresAt) {
+        this.tokenId = tokenId;
+        this.username = username;
+        this.revokedAt = revokedAt;
+        this.expiresAt = expiresAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getTokenId() {
+        return tokenId;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public long getRevokedAt() {
+        return revokedAt;
+    }
+
+    public long getExpiresAt() {
+        return expiresAt;
+    }
+}
@@ -1,14 +1,25 @@
 package com.nicolaslopez82.sms.domain;
 
+import com.nicolaslopez82.sms.service.CatalogChangeListener;
+import com.nicolaslopez82.sms.service.TourSearchIndexListener;
+import org.hibernate.Hibernate;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 import javax.persistence.*;
 import java.io.Serializable;
 import java.util.Objects;
 
 /**
  * The Tour contains all attributes of an Explore California Tour.
+ * Its TourPackage is loaded lazily, the Tour.tourPackage graph fetches it with the tour.
  */
 
 @Entity
+@NamedEntityGraph(name = "Tour.tourPackage", attributeNodes = @NamedAttributeNode("tourPackage"))
+@EntityListeners({TourSearchIndexListener.class, CatalogChangeListener.class})
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class Tour implements Serializable {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -35,7 +46,7 @@ public class Tour implements Serializable {
     @Column
     private String keywords;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name="tour_package_code")
     private TourPackage tourPackage;
 
@@ -147,6 +158,20 @@ public class Tour implements Serializable {
         this.region = region;
     }
 
+    /**
+     * Copy the tour out of its persistence context, with a copy of its TourPackage loaded,
+     * so it can be kept in memory and read after the session is closed.
+     *
+     * @return detached copy of the tour
+     */
+    public Tour detachedCopy() {
+        TourPackage loaded = (TourPackage) Hibernate.unproxy(tourPackage);
+        Tour copy = new Tour(title, description, blurb, price, duration, bullets, keywords,
+                loaded == null ? null : new TourPackage(loaded.getCode(), loaded.getName()), difficulty, region);
+        copy.id = id;
+        return copy;
+    }
+
     @Override
     public String toString() {
         return "Tour{" +
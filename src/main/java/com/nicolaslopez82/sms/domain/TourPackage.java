@@ -1,7 +1,13 @@
 package com.nicolaslopez82.sms.domain;
 
+import com.nicolaslopez82.sms.service.CatalogChangeListener;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.EntityListeners;
 import javax.persistence.Id;
 import javax.persistence.Table;
 import java.io.Serializable;
@@ -12,6 +18,9 @@ import java.util.Objects;
  */
 @Entity
 @Table(name="tour_package")
+@EntityListeners(CatalogChangeListener.class)
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class TourPackage implements Serializable {
     @Id
     private String code;
@@ -4,7 +4,7 @@ import javax.persistence.*;
 import java.util.Objects;
 
 /**
- * Rating of a Tour by a Customer
+ * Rating of a Tour by a Customer, its Tour is loaded lazily.
  */
 @Entity
 @Table(name="tour_rating")
@@ -13,7 +13,7 @@ public class TourRating {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Integer id;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "tour_id")
     private Tour tour;
 
@@ -64,7 +64,7 @@ public class TourRating {
      * @param score
      * @return
      */
-    private String toComment(Integer score) {
+    public static String toComment(Integer score) {
         switch (score) {
             case 1:return "Terrible";
             case 2:return "Poor";
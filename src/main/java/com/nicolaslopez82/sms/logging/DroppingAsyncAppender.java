@@ -0,0 +1,21 @@
+package com.nicolaslopez82.sms.logging;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+
+/**
+ * AsyncAppender that only discards TRACE and DEBUG events when its queue is filling up
+ * (logback's AsyncAppender also discards INFO).
+ *
+ * Configured with neverBlock, a full queue drops the event instead of blocking the request thread.
+ *
+ * @author nicolaslopez
+ */
+public class DroppingAsyncAppender extends AsyncAppender {
+
+    @Override
+    protected boolean isDiscardable(ILoggingEvent event) {
+        return event.getLevel().toInt() <= Level.DEBUG_INT;
+    }
+}
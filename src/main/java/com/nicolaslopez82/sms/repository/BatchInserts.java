@@ -0,0 +1,88 @@
+package com.nicolaslopez82.sms.repository;
+
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * JDBC batch inserts of the bulk repositories that reject only the rows violating a unique constraint.
+ *
+ * A batch that fails is rolled back to a savepoint and replayed row by row, each row with its own savepoint,
+ * so the rows inserted concurrently are rejected and the others kept. Meant to run in the caller's transaction.
+ *
+ * @author nicolaslopez
+ */
+final class BatchInserts {
+
+    /**
+     * Sets the parameters of the INSERT for a row.
+     */
+    @FunctionalInterface
+    interface Binder<T> {
+        void bind(PreparedStatement statement, T row) throws SQLException;
+    }
+
+    private BatchInserts() {
+    }
+
+    /**
+     * Insert the rows with JDBC batches of batchSize rows.
+     *
+     * @param jdbcTemplate template of the connection of the current transaction
+     * @param insert INSERT statement
+     * @param rows rows to insert
+     * @param batchSize number of rows per JDBC batch
+     * @param binder binds a row to the INSERT
+     * @return the rows rejected by a unique constraint
+     */
+    static <T> List<T> insertAll(JdbcTemplate jdbcTemplate, String insert, List<T> rows, int batchSize,
+                                 Binder<T> binder) {
+        return jdbcTemplate.execute((ConnectionCallback<List<T>>) connection -> {
+            List<T> rejected = new ArrayList<>();
+            try (PreparedStatement statement = connection.prepareStatement(insert)) {
+                for (int from = 0; from < rows.size(); from += batchSize) {
+                    List<T> chunk = rows.subList(from, Math.min(from + batchSize, rows.size()));
+                    Savepoint savepoint = connection.setSavepoint();
+                    try {
+                        for (T row : chunk) {
+                            binder.bind(statement, row);
+                            statement.addBatch();
+                        }
+                        statement.executeBatch();
+                        connection.releaseSavepoint(savepoint);
+                    } catch (BatchUpdateException e) {
+                        statement.clearBatch();
+                        connection.rollback(savepoint);
+                        rejected.addAll(insertOneByOne(connection, statement, chunk, binder));
+                    }
+                }
+            }
+            return rejected;
+        });
+    }
+
+    private static <T> List<T> insertOneByOne(Connection connection, PreparedStatement statement, List<T> rows,
+                                              Binder<T> binder) throws SQLException {
+        List<T> rejected = new ArrayList<>();
+        for (T row : rows) {
+            Savepoint savepoint = connection.setSavepoint();
+            try {
+                binder.bind(statement, row);
+                statement.executeUpdate();
+                connection.releaseSavepoint(savepoint);
+            } catch (SQLIntegrityConstraintViolationException e) {
+                connection.rollback(savepoint);
+                rejected.add(row);
+            }
+        }
+        return rejected;
+    }
+}
@@ -0,0 +1,59 @@
+package com.nicolaslopez82.sms.repository;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import com.nicolaslopez82.sms.domain.Tour;
+import com.nicolaslopez82.sms.domain.TourPackage;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.spi.RegionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import java.util.OptionalLong;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hibernate second-level and query cache for the Tour and TourPackage catalogs.
+ *
+ * The regions live in a Caffeine JCache CacheManager built here, so their size and time to live
+ * are set in application.properties. Hibernate invalidates the entries on every write through JPA;
+ * writes that bypass it (e.g. the TourCatalogImporter) must evict the regions themselves.
+ *
+ * @author nicolaslopez
+ */
+@Configuration
+public class CatalogCacheConfiguration {
+
+    @Bean
+    public CacheManager catalogCacheManager(
+            @Value("${com.nicolaslopez82.sms.cache.catalog.maximum-size:10000}") long catalogSize,
+            @Value("${com.nicolaslopez82.sms.cache.catalog.expire-after-write:3600000}") long catalogTtl,
+            @Value("${com.nicolaslopez82.sms.cache.queries.maximum-size:1000}") long queriesSize,
+            @Value("${com.nicolaslopez82.sms.cache.queries.expire-after-write:600000}") long queriesTtl) {
+        //own provider, not the JVM wide Caching registry, so every application context gets its own regions
+        CacheManager cacheManager = new CaffeineCachingProvider().getCacheManager();
+        cacheManager.createCache(Tour.class.getName(), configuration(catalogSize, catalogTtl));
+        cacheManager.createCache(TourPackage.class.getName(), configuration(catalogSize, catalogTtl));
+        cacheManager.createCache(RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME,
+                configuration(queriesSize, queriesTtl));
+        //must outlive the cached query results, never evicted
+        cacheManager.createCache(RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME,
+                new CaffeineConfiguration<>());
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer catalogCacheCustomizer(CacheManager catalogCacheManager) {
+        return properties -> properties.put(ConfigSettings.CACHE_MANAGER, catalogCacheManager);
+    }
+
+    private static CaffeineConfiguration<Object, Object> configuration(long maximumSize, long expireAfterWriteMillis) {
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        configuration.setMaximumSize(OptionalLong.of(maximumSize));
+        configuration.setExpireAfterWrite(OptionalLong.of(TimeUnit.MILLISECONDS.toNanos(expireAfterWriteMillis)));
+        return configuration;
+    }
+}
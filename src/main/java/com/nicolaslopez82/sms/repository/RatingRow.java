@@ -0,0 +1,15 @@
+package com.nicolaslopez82.sms.repository;
+
+/**
+ * Projection of the columns of a rating read by the API, with the identifier used as cursor.
+ */
+public interface RatingRow {
+
+    Integer getId();
+
+    Integer getScore();
+
+    String getComment();
+
+    Integer getCustomerId();
+}
@@ -0,0 +1,119 @@
+package com.nicolaslopez82.sms.repository;
+
+import com.nicolaslopez82.sms.web.RatingDto;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import io.r2dbc.spi.Row;
+import io.r2dbc.spi.Statement;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import javax.annotation.PreDestroy;
+
+/**
+ * Non-blocking access to tour_rating through R2DBC, for the reactive ratings API.
+ *
+ * The repository owns its pool of R2DBC connections (com.nicolaslopez82.sms.r2dbc.*) rather than
+ * exposing a ConnectionFactory bean, which would turn off the auto-configuration of the DataSource used
+ * by JPA. A query borrows a connection when it is subscribed and returns it when the rows are consumed
+ * or the subscription is cancelled; the rows are emitted as the subscriber requests them.
+ *
+ * @author nicolaslopez
+ */
+@Repository
+public class ReactiveTourRatingRepository {
+
+    private static final String SELECT_RATINGS =
+            "SELECT score, comment, customer_id FROM tour_rating WHERE tour_id = ? ORDER BY id";
+
+    private static final String SELECT_RATING =
+            "SELECT score, comment, customer_id FROM tour_rating WHERE tour_id = ? AND customer_id = ?";
+
+    private ConnectionPool connectionPool;
+
+    /**
+     * @param url R2DBC url, e.g. r2dbc:mysql://localhost:3306/explore_california
+     * @param username database user
+     * @param password database password
+     * @param maxSize maximum number of pooled connections
+     */
+    @Autowired
+    public ReactiveTourRatingRepository(@Value("${com.nicolaslopez82.sms.r2dbc.url}") String url,
+                                        @Value("${com.nicolaslopez82.sms.r2dbc.username:}") String username,
+                                        @Value("${com.nicolaslopez82.sms.r2dbc.password:}") String password,
+                                        @Value("${com.nicolaslopez82.sms.r2dbc.pool.max-size:10}") int maxSize) {
+        ConnectionFactoryOptions options = ConnectionFactoryOptions.parse(url).mutate()
+                .option(ConnectionFactoryOptions.USER, username)
+                .option(ConnectionFactoryOptions.PASSWORD, password)
+                .build();
+        this.connectionPool = new ConnectionPool(ConnectionPoolConfiguration.builder(ConnectionFactories.get(options))
+                .initialSize(0)
+                .maxSize(maxSize)
+                .build());
+    }
+
+    /**
+     * Lookup the Ratings of a tour.
+     *
+     * @param tourId tour identifier
+     * @return the ratings of the tour by id
+     */
+    public Flux<RatingDto> findRatingsByTourId(int tourId) {
+        return query(SELECT_RATINGS, tourId);
+    }
+
+    /**
+     * Lookup the Rating of a tour by a customer.
+     *
+     * @param tourId tour identifier
+     * @param customerId customer identifier
+     * @return the rating, empty if the customer did not rate the tour
+     */
+    public Mono<RatingDto> findRating(int tourId, int customerId) {
+        return query(SELECT_RATING, tourId, customerId).next();
+    }
+
+    /**
+     * Close the pooled connections.
+     */
+    @PreDestroy
+    public void close() {
+        connectionPool.dispose();
+    }
+
+    /**
+     * Run a query on a pooled connection, closed (returned to the pool) when the rows are consumed.
+     *
+     * The pool hands a returned connection to the next waiting subscriber within the release, on the
+     * releasing thread; with a driver that completes synchronously (H2) that thread would go on serving
+     * the requests queued behind it while others wait indefinitely, so the connection is emitted on the
+     * parallel scheduler instead.
+     */
+    private Flux<RatingDto> query(String sql, Object... args) {
+        return Flux.usingWhen(connectionPool.create().publishOn(Schedulers.parallel()),
+                connection -> Flux.from(bind(connection.createStatement(sql), args).execute())
+                        .flatMap(result -> result.map((row, metadata) -> toRatingDto(row))),
+                Connection::close);
+    }
+
+    private static Statement bind(Statement statement, Object... args) {
+        for (int i = 0; i < args.length; i++) {
+            statement.bind(i, args[i]);
+        }
+        return statement;
+    }
+
+    private static RatingDto toRatingDto(Row row) {
+        Number score = row.get("score", Number.class);
+        Number customerId = row.get("customer_id", Number.class);
+        return new RatingDto(score == null ? null : score.intValue(), row.get("comment", String.class),
+                customerId == null ? null : customerId.intValue());
+    }
+}
@@ -0,0 +1,97 @@
+package com.nicolaslopez82.sms.repository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.framework.Advised;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.data.repository.Repository;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time every method of the Spring Data repositories as "repository.invocations",
+ * tagged with the repository, the method and the outcome.
+ *
+ * The timing advice is put first in the chain of the repository proxy, so the time includes the
+ * transaction and the query. The Timers are created once per method and outcome.
+ *
+ * @author nicolaslopez
+ */
+@Component
+public class RepositoryMetricsPostProcessor implements BeanPostProcessor {
+
+    private ObjectProvider<MeterRegistry> meterRegistry;
+
+    @Autowired
+    public RepositoryMetricsPostProcessor(ObjectProvider<MeterRegistry> meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof Repository && bean instanceof Advised) {
+            Advised proxy = (Advised) bean;
+            proxy.addAdvice(0, new TimingInterceptor(repositoryName(proxy)));
+        }
+        return bean;
+    }
+
+    private static String repositoryName(Advised proxy) {
+        for (Class<?> proxied : proxy.getProxiedInterfaces()) {
+            if (Repository.class.isAssignableFrom(proxied) && !proxied.getName().startsWith("org.springframework")) {
+                return proxied.getSimpleName();
+            }
+        }
+        return "unknown";
+    }
+
+    private class TimingInterceptor implements MethodInterceptor {
+
+        private final String repository;
+        //success and error timers of each method
+        private final ConcurrentMap<Method, Timer[]> timers = new ConcurrentHashMap<>();
+
+        TimingInterceptor(String repository) {
+            this.repository = repository;
+        }
+
+        @Override
+        public Object invoke(MethodInvocation invocation) throws Throwable {
+            long start = System.nanoTime();
+            boolean success = false;
+            try {
+                Object result = invocation.proceed();
+                success = true;
+                return result;
+            } finally {
+                Timer[] methodTimers = timers.get(invocation.getMethod());
+                if (methodTimers == null) {
+                    methodTimers = timers.computeIfAbsent(invocation.getMethod(), this::register);
+                }
+                methodTimers[success ? 0 : 1].record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        private Timer[] register(Method method) {
+            MeterRegistry registry = meterRegistry.getObject();
+            return new Timer[]{timer(registry, method, "SUCCESS"), timer(registry, method, "ERROR")};
+        }
+
+        private Timer timer(MeterRegistry registry, Method method, String outcome) {
+            return Timer.builder("repository.invocations")
+                    .tag("repository", repository)
+                    .tag("method", method.getName())
+                    .tag("outcome", outcome)
+                    .description("Invocations of the repository methods")
+                    .register(registry);
+        }
+    }
+}
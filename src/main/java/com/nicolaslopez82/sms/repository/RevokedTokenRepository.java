@@ -0,0 +1,31 @@
+package com.nicolaslopez82.sms.repository;
+
+import com.nicolaslopez82.sms.domain.RevokedToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.rest.core.annotation.RepositoryRestResource;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@RepositoryRestResource(exported = false)
+public interface RevokedTokenRepository extends JpaRepository<RevokedToken, Long> {
+
+    /**
+     * @param now current time in epoch milliseconds
+     * @return the revocations of tokens not yet expired
+     */
+    List<RevokedToken> findByExpiresAtGreaterThan(long now);
+
+    /**
+     * Delete the revocations of expired tokens with a single statement.
+     *
+     * @param now current time in epoch milliseconds
+     * @return number of deleted revocations
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM RevokedToken r WHERE r.expiresAt <= ?1")
+    int deleteExpired(long now);
+}
@@ -0,0 +1,13 @@
+package com.nicolaslopez82.sms.repository;
+
+/**
+ * Projection of the number of ratings with a given score for a tour.
+ */
+public interface ScoreCount {
+
+    Integer getTourId();
+
+    Integer getScore();
+
+    Long getTotal();
+}
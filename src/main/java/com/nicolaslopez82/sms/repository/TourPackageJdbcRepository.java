@@ -0,0 +1,72 @@
+package com.nicolaslopez82.sms.repository;
+
+import com.nicolaslopez82.sms.domain.TourPackage;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Direct JDBC access to tour_package for bulk operations: with its assigned code, saving a TourPackage
+ * through JPA merges it, i.e. selects it before inserting it, one package at a time.
+ *
+ * The inserts bypass Hibernate, so its query cache must be evicted by the caller.
+ *
+ * @author nicolaslopez
+ */
+@Repository
+public class TourPackageJdbcRepository {
+
+    private static final String INSERT = "INSERT INTO tour_package (code, name) VALUES (?, ?)";
+
+    private static final String SELECT_CODES = "SELECT code FROM tour_package WHERE code IN (:codes)";
+
+    private JdbcTemplate jdbcTemplate;
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @Autowired
+    public TourPackageJdbcRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+    }
+
+    /**
+     * Lookup which of the codes already exist, with a single IN query.
+     *
+     * @param codes tour package codes, not empty
+     * @return the existing codes
+     */
+    public List<String> findCodes(Collection<String> codes) {
+        return namedParameterJdbcTemplate.queryForList(SELECT_CODES, new MapSqlParameterSource("codes", codes),
+                String.class);
+    }
+
+    /**
+     * Insert the TourPackages with a single JDBC batch, in a single transaction.
+     *
+     * A batch that violates the unique code (e.g. a package inserted concurrently) is rolled back
+     * to a savepoint and replayed row by row, so only the conflicting packages are rejected.
+     *
+     * @param tourPackages new tour packages
+     * @return the codes rejected by the unique constraint
+     */
+    @Transactional
+    public List<String> insertAll(List<TourPackage> tourPackages) {
+        List<TourPackage> rejected = BatchInserts.insertAll(jdbcTemplate, INSERT, tourPackages,
+                Math.max(1, tourPackages.size()), TourPackageJdbcRepository::bind);
+        return rejected.stream().map(TourPackage::getCode).collect(Collectors.toList());
+    }
+
+    private static void bind(PreparedStatement statement, TourPackage tourPackage) throws SQLException {
+        statement.setString(1, tourPackage.getCode());
+        statement.setString(2, tourPackage.getName());
+    }
+}
@@ -1,12 +1,16 @@
 package com.nicolaslopez82.sms.repository;
 
 import com.nicolaslopez82.sms.domain.TourPackage;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.rest.core.annotation.RepositoryRestResource;
 import org.springframework.data.rest.core.annotation.RestResource;
 
+import javax.persistence.QueryHint;
 import java.util.Optional;
 
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+
 /**
  * Controlling API Exposure
  * @RepositoryRestResource(exported = false) Class annotation.
@@ -15,8 +19,13 @@ import java.util.Optional;
 
 @RepositoryRestResource(collectionResourceRel = "packages", path = "packages")
 public interface TourPackageRepository extends CrudRepository<TourPackage, String> {
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
     Optional<TourPackage> findByName(String name);
 
+    @Override
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    Iterable<TourPackage> findAll();
+
     @Override
     @RestResource(exported = false)
     <S extends TourPackage> S save(S s);
@@ -0,0 +1,85 @@
+package com.nicolaslopez82.sms.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Direct JDBC access to tour_rating for bulk operations that can not be batched by Hibernate
+ * (TourRating uses an IDENTITY generated id).
+ *
+ * @author nicolaslopez
+ */
+@Repository
+public class TourRatingJdbcRepository {
+
+    private static final String INSERT =
+            "INSERT INTO tour_rating (tour_id, customer_id, score, comment) VALUES (?, ?, ?, ?)";
+
+    private static final String SELECT_CUSTOMERS =
+            "SELECT customer_id FROM tour_rating WHERE tour_id = :tourId AND customer_id IN (:customerIds)";
+
+    private JdbcTemplate jdbcTemplate;
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @Autowired
+    public TourRatingJdbcRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+    }
+
+    /**
+     * Lookup which of the customers already rated a tour.
+     *
+     * @param tourId tour identifier
+     * @param customerIds customer identifiers
+     * @param chunkSize maximum number of customer identifiers per IN list
+     * @return the customer identifiers that already have a TourRating for the tour
+     */
+    public List<Integer> findCustomerIds(int tourId, List<Integer> customerIds, int chunkSize) {
+        List<Integer> found = new ArrayList<>();
+        for (int from = 0; from < customerIds.size(); from += chunkSize) {
+            Collection<Integer> chunk = customerIds.subList(from, Math.min(from + chunkSize, customerIds.size()));
+            found.addAll(namedParameterJdbcTemplate.queryForList(SELECT_CUSTOMERS,
+                    new MapSqlParameterSource("tourId", tourId).addValue("customerIds", chunk),
+                    Integer.class));
+        }
+        return found;
+    }
+
+    /**
+     * Insert one TourRating per customer, with JDBC batches of batchSize rows, in a single transaction.
+     *
+     * A batch that violates the (tour_id, customer_id) unique constraint is rolled back to a savepoint
+     * and replayed row by row, so only the conflicting customers are rejected.
+     *
+     * @param tourId tour identifier
+     * @param score score given by every customer
+     * @param comment comment given by every customer
+     * @param customerIds customer identifiers
+     * @param batchSize number of rows per JDBC batch
+     * @return the customer identifiers rejected by the unique constraint
+     */
+    @Transactional
+    public List<Integer> insertAll(int tourId, int score, String comment, List<Integer> customerIds, int batchSize) {
+        return BatchInserts.insertAll(jdbcTemplate, INSERT, customerIds, batchSize,
+                (statement, customerId) -> bind(statement, tourId, customerId, score, comment));
+    }
+
+    private static void bind(PreparedStatement statement, int tourId, int customerId, int score, String comment)
+            throws SQLException {
+        statement.setInt(1, tourId);
+        statement.setInt(2, customerId);
+        statement.setInt(3, score);
+        statement.setString(4, comment);
+    }
+}
@@ -1,14 +1,21 @@
 package com.nicolaslopez82.sms.repository;
 
 import com.nicolaslopez82.sms.domain.TourRating;
+import com.nicolaslopez82.sms.web.RatingDto;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.rest.core.annotation.RepositoryRestResource;
 
+import javax.persistence.QueryHint;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
 
 /**
  * Tour Rating Repository Interface
@@ -33,6 +40,55 @@ public interface TourRatingRepository extends JpaRepository<TourRating, Integer>
      */
     Page<TourRating> findByTourId(Integer tourId, Pageable pageable);
 
+    /**
+     * Lookup the ratings of a tour as RatingDto's, selecting only their columns: no TourRating, nor its
+     * Tour, is hydrated or kept in the persistence context.
+     *
+     * @param tourId is the tour Identifier
+     * @return a List of RatingDto's in identifier order
+     */
+    @Query("SELECT new com.nicolaslopez82.sms.web.RatingDto(r.score, r.comment, r.customerId) FROM TourRating r " +
+            "WHERE r.tour.id = ?1 ORDER BY r.id")
+    List<RatingDto> findRatingsByTourId(Integer tourId);
+
+    /**
+     * Lookup a page of the ratings of a tour as RatingDto's, selecting only their columns.
+     *
+     * @param tourId is the tour Identifier
+     * @param pageable details for the desired page, sorted by TourRating properties
+     * @return a Page of RatingDto's
+     */
+    @Query(value = "SELECT new com.nicolaslopez82.sms.web.RatingDto(r.score, r.comment, r.customerId) " +
+            "FROM TourRating r WHERE r.tour.id = ?1",
+            countQuery = "SELECT COUNT(r) FROM TourRating r WHERE r.tour.id = ?1")
+    Page<RatingDto> findRatingsByTourId(Integer tourId, Pageable pageable);
+
+    /**
+     * Stream the ratings of a tour as RatingDto's, forward only with a bounded fetch size,
+     * without hydrating (or keeping in the persistence context) any TourRating entity.
+     * Must be consumed and closed within a transaction.
+     *
+     * @param tourId is the tour Identifier
+     * @return a Stream of RatingDto's in identifier order
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT new com.nicolaslopez82.sms.web.RatingDto(r.score, r.comment, r.customerId) FROM TourRating r " +
+            "WHERE r.tour.id = ?1 ORDER BY r.id")
+    Stream<RatingDto> streamRatingsByTourId(Integer tourId);
+
+    /**
+     * Lookup the ratings of a tour that follow a given rating, in identifier order (keyset pagination),
+     * selecting only the columns of a RatingRow.
+     *
+     * @param tourId tourId is the tour Identifier
+     * @param id identifier of the last rating already read
+     * @param pageable only the page size is used, no count query is issued
+     * @return the next ratings
+     */
+    @Query("SELECT r.id AS id, r.score AS score, r.comment AS comment, r.customerId AS customerId " +
+            "FROM TourRating r WHERE r.tour.id = ?1 AND r.id > ?2 ORDER BY r.id")
+    List<RatingRow> findRatingRowsAfter(Integer tourId, Integer id, Pageable pageable);
+
     /**
      * Lookup a TourRating by the TourId and Customer Id
      * @param tourId
@@ -40,4 +96,23 @@ public interface TourRatingRepository extends JpaRepository<TourRating, Integer>
      * @return TourRating if found, null otherwise.
      */
     Optional<TourRating> findByTourIdAndCustomerId(Integer tourId, Integer customerId);
-}
\ No newline at end of file
+
+    /**
+     * Count the ratings per score of a tour.
+     *
+     * @param tourId is the tour Identifier
+     * @return one ScoreCount per distinct score
+     */
+    @Query("SELECT r.tour.id AS tourId, r.score AS score, COUNT(r) AS total FROM TourRating r " +
+            "WHERE r.tour.id = ?1 GROUP BY r.tour.id, r.score")
+    List<ScoreCount> countScoresByTourId(Integer tourId);
+
+    /**
+     * Count the ratings per score of every tour.
+     *
+     * @return one ScoreCount per distinct tour and score
+     */
+    @Query("SELECT r.tour.id AS tourId, r.score AS score, COUNT(r) AS total FROM TourRating r " +
+            "GROUP BY r.tour.id, r.score")
+    List<ScoreCount> countScores();
+}
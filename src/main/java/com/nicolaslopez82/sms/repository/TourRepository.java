@@ -6,16 +6,21 @@ import com.nicolaslopez82.sms.domain.Tour;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.PagingAndSortingRepository;
 import org.springframework.data.rest.core.annotation.RepositoryRestResource;
 import org.springframework.data.rest.core.annotation.RestResource;
 
+import javax.persistence.QueryHint;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+
 /**
  * Simple Query Method Signature:
  *
@@ -67,6 +72,20 @@ public interface TourRepository extends PagingAndSortingRepository<Tour, Integer
     //Same as
     List<Tour> findByTourPackageCodeAndDifficultyAndRegionAndPriceLessThan(String code, Difficulty difficulty, Region region, Integer maxPrice);
 
+    @Override
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    Page<Tour> findAll(Pageable pageable);
+
+    /**
+     * Lookup all the Tours with their TourPackage, in a single query.
+     *
+     * @return all the Tours, their TourPackage initialized
+     */
+    @RestResource(exported = false)
+    @EntityGraph("Tour.tourPackage")
+    @Query("SELECT t FROM Tour t")
+    List<Tour> findAllWithTourPackage();
+
     @Override
     @RestResource(exported = false)
     Iterable<Tour> findAll(Sort sort);
@@ -1,13 +1,31 @@
 package com.nicolaslopez82.sms.repository;
 
 import com.nicolaslopez82.sms.domain.User;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.rest.core.annotation.RepositoryRestResource;
 
 
+import java.util.List;
 import java.util.Optional;
 
 @RepositoryRestResource(exported = false)
 public interface UserRepository extends JpaRepository<User, Integer> {
     Optional<User> findByUsername(String username);
+
+    /**
+     * Lookup a user and its roles with a single query.
+     *
+     * @param username username
+     * @return the User with its roles initialized, empty if not found
+     */
+    @Query("SELECT DISTINCT u FROM User u LEFT JOIN FETCH u.roles WHERE u.username = ?1")
+    Optional<User> findWithRolesByUsername(String username);
+
+    boolean existsByUsername(String username);
+
+    @Override
+    @EntityGraph("User.roles")
+    List<User> findAll();
 }
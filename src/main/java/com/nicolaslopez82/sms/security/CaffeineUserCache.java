@@ -0,0 +1,61 @@
+package com.nicolaslopez82.sms.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserCache;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Short lived cache of the UserDetails loaded by ExploreCaliUserDetailsService, so repeated sign-ins
+ * of a user only hit the database once per time to live.
+ *
+ * Entries are copied in and out: the AuthenticationManager erases the password of the UserDetails it
+ * returns, which must not reach the cached copy. A user must be evicted when its password or roles change.
+ *
+ * @author nicolaslopez
+ */
+@Component
+public class CaffeineUserCache implements UserCache {
+
+    private final Cache<String, UserDetails> cache;
+
+    @Autowired
+    public CaffeineUserCache(@Value("${security.user-cache.ttl:60000}") long ttl,
+                             @Value("${security.user-cache.maximum-size:10000}") long maximumSize,
+                             MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .expireAfterWrite(ttl, TimeUnit.MILLISECONDS)
+                .maximumSize(maximumSize)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "users");
+    }
+
+    @Override
+    public UserDetails getUserFromCache(String username) {
+        UserDetails user = cache.getIfPresent(username);
+        return user == null ? null : copy(user);
+    }
+
+    @Override
+    public void putUserInCache(UserDetails user) {
+        cache.put(user.getUsername(), copy(user));
+    }
+
+    @Override
+    public void removeUserFromCache(String username) {
+        cache.invalidate(username);
+    }
+
+    private static UserDetails copy(UserDetails user) {
+        return User.withUserDetails(user).build();
+    }
+}
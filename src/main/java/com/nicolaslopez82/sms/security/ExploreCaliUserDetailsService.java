@@ -3,8 +3,12 @@ package com.nicolaslopez82.sms.security;
 
 import com.nicolaslopez82.sms.domain.User;
 import com.nicolaslopez82.sms.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.userdetails.UserCache;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Component;
@@ -18,7 +22,9 @@ import java.util.Optional;
  */
 
 @Component
-public class ExploreCaliUserDetailsService implements UserDetailsService {
+public class ExploreCaliUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ExploreCaliUserDetailsService.class);
 
     @Autowired
     private UserRepository userRepository;
@@ -26,9 +32,12 @@ public class ExploreCaliUserDetailsService implements UserDetailsService {
     @Autowired
     JwtProvider jwtProvider;
 
+    @Autowired
+    private UserCache userCache;
+
     @Override
     public UserDetails loadUserByUsername(String s) throws UsernameNotFoundException {
-        User user = userRepository.findByUsername(s).orElseThrow(() ->
+        User user = userRepository.findWithRolesByUsername(s).orElseThrow(() ->
                 new UsernameNotFoundException(String.format("User with name %s does not exist", s)));
 
         //org.springframework.security.core.userdetails.User.withUsername() builder
@@ -49,31 +58,41 @@ public class ExploreCaliUserDetailsService implements UserDetailsService {
      * @return UserDetails if valid, Empty otherwise
      */
     public Optional<UserDetails> loadUserByJwtToken(String jwtToken) {
-        if (jwtProvider.isValidToken(jwtToken)) {
-            return Optional.of(
-                    withUsername(jwtProvider.getUsername(jwtToken))
-                            .authorities(jwtProvider.getRoles(jwtToken))
-                            .password("") //token does not have password but field may not be empty
-                            .accountExpired(false)
-                            .accountLocked(false)
-                            .credentialsExpired(false)
-                            .disabled(false)
-                            .build());
-        }
-        return Optional.empty();
+        return jwtProvider.verify(jwtToken).map(VerifiedToken::toUserDetails);
     }
 
     /**
-     * Extract the username from the JWT then lookup the user in the database.
+     * Extract the username from the JWT then lookup the user in the user cache or the database.
      *
      * @param jwtToken
      * @return
      */
     public Optional<UserDetails> loadUserByJwtTokenAndDatabase(String jwtToken) {
-        if (jwtProvider.isValidToken(jwtToken)) {
-            return Optional.of(loadUserByUsername(jwtProvider.getUsername(jwtToken)));
-        } else {
-            return Optional.empty();
-        }
+        return jwtProvider.verify(jwtToken).map(verifiedToken -> {
+            UserDetails user = userCache.getUserFromCache(verifiedToken.getUsername());
+            if (user == null) {
+                user = loadUserByUsername(verifiedToken.getUsername());
+                userCache.putUserInCache(user);
+            }
+            return user;
+        });
+    }
+
+    /**
+     * Store the password of a user hashed again with the target encoding, after a successful sign in.
+     *
+     * @param user signed in user
+     * @param newPassword new password hash
+     * @return the user with the new password hash
+     */
+    @Override
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        userRepository.findByUsername(user.getUsername()).ifPresent(entity -> {
+            entity.setPassword(newPassword);
+            userRepository.save(entity);
+            LOGGER.info("Rehashed the password of user {}", user.getUsername());
+        });
+        userCache.removeUserFromCache(user.getUsername());
+        return org.springframework.security.core.userdetails.User.withUserDetails(user).password(newPassword).build();
     }
 }
@@ -0,0 +1,84 @@
+package com.nicolaslopez82.sms.security;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Publish the token validations of the JwtProvider, the hits of its VerifiedTokenCache, and the checks
+ * and memory use of the TokenRevocationList.
+ *
+ * The meters read the LongAdders the provider and the revocation list already maintain, so validating
+ * a token does not touch the MeterRegistry.
+ *
+ * @author nicolaslopez
+ */
+@Component
+public class JwtMetrics implements MeterBinder {
+
+    private JwtProvider jwtProvider;
+    private TokenRevocationList tokenRevocationList;
+
+    @Autowired
+    public JwtMetrics(JwtProvider jwtProvider, TokenRevocationList tokenRevocationList) {
+        this.jwtProvider = jwtProvider;
+        this.tokenRevocationList = tokenRevocationList;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("jwt.validations", jwtProvider, JwtProvider::getAcceptedTokens)
+                .tag("result", "accepted")
+                .description("Bearer tokens validated")
+                .register(registry);
+        FunctionCounter.builder("jwt.validations", jwtProvider, JwtProvider::getRejectedTokens)
+                .tag("result", "rejected")
+                .description("Bearer tokens validated")
+                .register(registry);
+
+        VerifiedTokenCache tokenCache = jwtProvider.getTokenCache();
+        FunctionCounter.builder("jwt.cache.gets", tokenCache, VerifiedTokenCache::getHits)
+                .tag("result", "hit")
+                .description("Lookups of verified tokens")
+                .register(registry);
+        FunctionCounter.builder("jwt.cache.gets", tokenCache, VerifiedTokenCache::getMisses)
+                .tag("result", "miss")
+                .description("Lookups of verified tokens")
+                .register(registry);
+        FunctionCounter.builder("jwt.cache.evictions", tokenCache, VerifiedTokenCache::getEvictions)
+                .description("Verified tokens dropped to make room")
+                .register(registry);
+        Gauge.builder("jwt.cache.size", tokenCache, VerifiedTokenCache::size)
+                .description("Verified tokens cached")
+                .register(registry);
+
+        FunctionCounter.builder("jwt.revocation.checks", tokenRevocationList, TokenRevocationList::getNegativeChecks)
+                .tag("result", "negative")
+                .description("Revocation checks of verified tokens")
+                .register(registry);
+        FunctionCounter.builder("jwt.revocation.checks", tokenRevocationList, TokenRevocationList::getRevokedChecks)
+                .tag("result", "revoked")
+                .description("Revocation checks of verified tokens")
+                .register(registry);
+        FunctionCounter.builder("jwt.revocation.checks", tokenRevocationList, TokenRevocationList::getClearedChecks)
+                .tag("result", "cleared")
+                .description("Revocation checks of verified tokens")
+                .register(registry);
+        Gauge.builder("jwt.revocation.size", tokenRevocationList, TokenRevocationList::size)
+                .description("Revoked tokens and users held in memory")
+                .register(registry);
+        Gauge.builder("jwt.revocation.memory", tokenRevocationList, TokenRevocationList::getFilterBytes)
+                .tag("structure", "bloom-filter")
+                .baseUnit("bytes")
+                .description("Memory used by the revocation list")
+                .register(registry);
+        Gauge.builder("jwt.revocation.memory", tokenRevocationList, TokenRevocationList::getEstimatedMapBytes)
+                .tag("structure", "maps")
+                .baseUnit("bytes")
+                .description("Memory used by the revocation list")
+                .register(registry);
+    }
+}
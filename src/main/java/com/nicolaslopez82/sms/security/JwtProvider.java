@@ -1,6 +1,5 @@
 package com.nicolaslopez82.sms.security;
 
-import com.nicolaslopez82.sms.domain.Role;
 import io.jsonwebtoken.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
@@ -9,6 +8,7 @@ import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.stereotype.Component;
 
 import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.Collectors;
 
 /**
@@ -26,13 +26,18 @@ public class JwtProvider{
 
     private String secretKey;
     private long validityInMilliseconds;
+    private VerifiedTokenCache tokenCache;
+    private final LongAdder acceptedTokens = new LongAdder();
+    private final LongAdder rejectedTokens = new LongAdder();
 
     @Autowired
     public JwtProvider(@Value("${security.jwt.token.secret-key}") String secretKey,
-                       @Value("${security.jwt.token.expiration}")long validityInMilliseconds) {
+                       @Value("${security.jwt.token.expiration}")long validityInMilliseconds,
+                       @Value("${security.jwt.token.cache-size:10000}") int cacheSize) {
 
         this.secretKey = Base64.getEncoder().encodeToString(secretKey.getBytes());
         this.validityInMilliseconds = validityInMilliseconds;
+        this.tokenCache = new VerifiedTokenCache(cacheSize);
     }
 
     /**
@@ -42,7 +47,7 @@ public class JwtProvider{
      * @param roles
      * @return jwt string
      */
-    public String createToken(String username, List<Role> roles) {
+    public String createToken(String username, Collection<? extends GrantedAuthority> roles) {
         //Add the username to the payload
         Claims claims = Jwts.claims().setSubject(username);
         //Convert roles to Spring Security SimpleGrantedAuthority objects,
@@ -50,16 +55,40 @@ public class JwtProvider{
         claims.put(ROLES_KEY, roles.stream().map(role ->new SimpleGrantedAuthority(role.getAuthority()))
                 .filter(Objects::nonNull)
                 .collect(Collectors.toList()));
-        //Build the Token
+        //Build the Token, identified by a random jti to be revocable
         Date now = new Date();
         return Jwts.builder()
                 .setClaims(claims)
+                .setId(UUID.randomUUID().toString())
                 .setIssuedAt(now)
                 .setExpiration(new Date(now.getTime() + validityInMilliseconds))
                 .signWith(SignatureAlgorithm.HS256, secretKey)
                 .compact();
     }
 
+    /**
+     * Verify the signature and expiration of the JWT String once and extract its claims.
+     * Tokens already verified are served from the cache until they expire; a token without expiration is invalid.
+     *
+     * @param token JWT string
+     * @return the VerifiedToken if valid, empty otherwise
+     */
+    public Optional<VerifiedToken> verify(String token) {
+        long now = System.currentTimeMillis();
+        VerifiedToken verified = tokenCache.get(token, now);
+        if (verified == null) {
+            try {
+                verified = toVerifiedToken(Jwts.parser().setSigningKey(secretKey).parseClaimsJws(token).getBody());
+            } catch (JwtException | IllegalArgumentException e) {
+                rejectedTokens.increment();
+                return Optional.empty();
+            }
+            tokenCache.put(token, verified, now);
+        }
+        acceptedTokens.increment();
+        return Optional.of(verified);
+    }
+
     /**
      * Validate the JWT String
      *
@@ -67,12 +96,7 @@ public class JwtProvider{
      * @return true if valid, false otherwise
      */
     public boolean isValidToken(String token) {
-        try {
-            Jwts.parser().setSigningKey(secretKey).parseClaimsJws(token);
-            return true;
-        } catch (JwtException | IllegalArgumentException e) {
-            return false;
-        }
+        return verify(token).isPresent();
     }
 
     /**
@@ -82,8 +106,7 @@ public class JwtProvider{
      * @return username
      */
     public String getUsername(String token) {
-        return Jwts.parser().setSigningKey(secretKey)
-                .parseClaimsJws(token).getBody().getSubject();
+        return verifyOrThrow(token).getUsername();
     }
 
     /**
@@ -93,10 +116,46 @@ public class JwtProvider{
      * @return username
      */
     public List<GrantedAuthority> getRoles(String token) {
-        List<Map<String, String>>  roleClaims = Jwts.parser().setSigningKey(secretKey)
-                .parseClaimsJws(token).getBody().get(ROLES_KEY, List.class);
-        return roleClaims.stream().map(roleClaim ->
+        return verifyOrThrow(token).getRoles();
+    }
+
+    /**
+     * @return the cache of verified tokens, to monitor its hit ratio.
+     */
+    public VerifiedTokenCache getTokenCache() {
+        return tokenCache;
+    }
+
+    /**
+     * @return number of valid tokens verified, from the cache or not.
+     */
+    public long getAcceptedTokens() {
+        return acceptedTokens.sum();
+    }
+
+    /**
+     * @return number of invalid or expired tokens.
+     */
+    public long getRejectedTokens() {
+        return rejectedTokens.sum();
+    }
+
+    private VerifiedToken verifyOrThrow(String token) {
+        return verify(token).orElseThrow(() -> new JwtException("Invalid token"));
+    }
+
+    private VerifiedToken toVerifiedToken(Claims claims) {
+        if (claims.getExpiration() == null) {
+            throw new JwtException("Token without expiration");
+        }
+        List<Map<String, String>>  roleClaims = claims.get(ROLES_KEY, List.class);
+        if (roleClaims == null) {
+            roleClaims = Collections.emptyList();
+        }
+        List<GrantedAuthority> roles = roleClaims.stream().map(roleClaim ->
                 new SimpleGrantedAuthority(roleClaim.get("authority")))
                 .collect(Collectors.toList());
+        return new VerifiedToken(claims.getId(), claims.getSubject(), Collections.unmodifiableList(roles),
+                claims.getIssuedAt() == null ? 0 : claims.getIssuedAt().getTime(), claims.getExpiration().getTime());
     }
 }
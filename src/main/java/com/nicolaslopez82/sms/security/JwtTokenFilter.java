@@ -3,6 +3,7 @@ package com.nicolaslopez82.sms.security;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.preauth.PreAuthenticatedAuthenticationToken;
 import org.springframework.web.filter.GenericFilterBean;
 
@@ -25,15 +26,18 @@ public class JwtTokenFilter extends GenericFilterBean{
     private static final Logger LOGGER = LoggerFactory.getLogger(JwtTokenFilter.class);
     private static final String BEARER = "Bearer";
 
-    private ExploreCaliUserDetailsService userDetailsService;
+    private JwtProvider jwtProvider;
+    private TokenRevocationList tokenRevocationList;
 
-    public JwtTokenFilter(ExploreCaliUserDetailsService userDetailsService) {
-        this.userDetailsService = userDetailsService;
+    public JwtTokenFilter(JwtProvider jwtProvider, TokenRevocationList tokenRevocationList) {
+        this.jwtProvider = jwtProvider;
+        this.tokenRevocationList = tokenRevocationList;
     }
 
     /**
      * Determine if there is a JWT as part of the HTTP Request Header.
-     * If it is valid then set the current context With the Authentication(user and roles) found in the token
+     * If it is valid and not revoked then set the current context With the Authentication(user and roles)
+     * found in the token
      *
      * @param req Servlet Request
      * @param res Servlet Response
@@ -44,17 +48,18 @@ public class JwtTokenFilter extends GenericFilterBean{
     @Override
     public void doFilter(ServletRequest req, ServletResponse res, FilterChain filterChain)
             throws IOException, ServletException {
-        LOGGER.info("Process request to check for a JSON Web Token ");
+        LOGGER.debug("Process request to check for a JSON Web Token");
         //Check for Authorization:Bearer JWT
         String headerValue = ((HttpServletRequest)req).getHeader("Authorization");
-        getBearerToken(headerValue).ifPresent(token-> {
-            //Pull the Username and Roles from the JWT to construct the user details
-            userDetailsService.loadUserByJwtToken(token).ifPresent(userDetails -> {
-                //Add the user details (Permissions) to the Context for just this API invocation
-                SecurityContextHolder.getContext().setAuthentication(
-                        new PreAuthenticatedAuthenticationToken(userDetails, "", userDetails.getAuthorities()));
-            });
-        });
+        getBearerToken(headerValue).flatMap(jwtProvider::verify)
+                .filter(verifiedToken -> !tokenRevocationList.isRevoked(verifiedToken))
+                .ifPresent(verifiedToken -> {
+                    //Pull the Username and Roles from the JWT to construct the user details
+                    UserDetails userDetails = verifiedToken.toUserDetails();
+                    //Add the user details (Permissions) to the Context for just this API invocation
+                    SecurityContextHolder.getContext().setAuthentication(
+                            new PreAuthenticatedAuthenticationToken(userDetails, "", userDetails.getAuthorities()));
+                });
 
         //move on to the next filter in the chains
         filterChain.doFilter(req, res);
@@ -0,0 +1,122 @@
+package com.nicolaslopez82.sms.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Sign in admission control: a token bucket per username and one per client address.
+ *
+ * A bucket holds up to attempts-per-minute tokens and gets them back continuously over a minute;
+ * every sign in attempt takes one token from the bucket of its username and one from the bucket of
+ * its address. An attempt finding either bucket empty is refused before any password is hashed, which
+ * slows down guessing the password of a user as well as stuffing credentials from one address.
+ * Idle buckets are full, so they are dropped after a minute without attempts.
+ *
+ * Refused attempts are counted by login.throttled, tagged by the bucket that refused them.
+ *
+ * @author nicolaslopez
+ */
+@Component
+public class LoginThrottle {
+
+    private static final long MINUTE_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final Limit usernames;
+    private final Limit addresses;
+
+    @Autowired
+    public LoginThrottle(@Value("${security.login.username.attempts-per-minute:10}") int attemptsPerUsername,
+                         @Value("${security.login.address.attempts-per-minute:60}") int attemptsPerAddress,
+                         @Value("${security.login.maximum-size:100000}") long maximumSize,
+                         MeterRegistry meterRegistry) {
+        this.usernames = new Limit(attemptsPerUsername, maximumSize, throttled(meterRegistry, "username"));
+        this.addresses = new Limit(attemptsPerAddress, maximumSize, throttled(meterRegistry, "address"));
+    }
+
+    /**
+     * Take a sign in attempt from the buckets of a user and an address.
+     *
+     * @param username username of the attempt
+     * @param address client address of the attempt
+     * @return true if the attempt may proceed, false if either bucket is empty
+     */
+    public boolean tryAcquire(String username, String address) {
+        long now = System.nanoTime();
+        //attempts refused by their address take no token of the user, a flood from one address does not lock the user out
+        return addresses.tryAcquire(address, now) && usernames.tryAcquire(username, now);
+    }
+
+    private static Counter throttled(MeterRegistry registry, String by) {
+        return Counter.builder("login.throttled")
+                .tag("by", by)
+                .description("Sign in attempts refused by the login throttle")
+                .register(registry);
+    }
+
+    private static final class Limit {
+
+        private final int attemptsPerMinute;
+        private final Cache<String, Bucket> buckets;
+        private final Counter throttled;
+
+        Limit(int attemptsPerMinute, long maximumSize, Counter throttled) {
+            this.attemptsPerMinute = attemptsPerMinute;
+            this.buckets = Caffeine.newBuilder()
+                    .expireAfterAccess(1, TimeUnit.MINUTES)
+                    .maximumSize(maximumSize)
+                    .build();
+            this.throttled = throttled;
+        }
+
+        boolean tryAcquire(String key, long now) {
+            if (attemptsPerMinute <= 0 || key == null) {
+                return true;
+            }
+            boolean acquired = buckets.get(key, k -> new Bucket(attemptsPerMinute, now)).tryAcquire(now);
+            if (!acquired) {
+                throttled.increment();
+            }
+            return acquired;
+        }
+    }
+
+    private static final class Bucket {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final int capacity;
+        //guarded by lock
+        private double tokens;
+        private long refilled;
+
+        Bucket(int capacity, long now) {
+            this.capacity = capacity;
+            this.tokens = capacity;
+            this.refilled = now;
+        }
+
+        boolean tryAcquire(long now) {
+            lock.lock();
+            try {
+                if (now > refilled) {
+                    tokens = Math.min(capacity, tokens + (double) (now - refilled) * capacity / MINUTE_NANOS);
+                    refilled = now;
+                }
+                if (tokens < 1) {
+                    return false;
+                }
+                tokens--;
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.nicolaslopez82.sms.security;
+
+/**
+ * The BoundedPasswordEncoder has no free thread nor room in its queue for another hash.
+ *
+ * @author nicolaslopez
+ */
+public class PasswordEncoderBusyException extends RuntimeException {
+
+    public PasswordEncoderBusyException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,71 @@
+package com.nicolaslopez82.sms.security;
+
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.crypto.password.Pbkdf2PasswordEncoder;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Versioned password hashes: every hash is prefixed by the id of its encoding, {bcrypt} or {pbkdf2},
+ * and hashes without a prefix, stored before the prefix was introduced, are BCrypt.
+ *
+ * New hashes use the target encoding and BCrypt strength. A hash of another encoding or another BCrypt
+ * strength, higher or lower, needs an upgrade: the DaoAuthenticationProvider rehashes it on the next
+ * successful sign in, so changing the target moves the users over as they sign in.
+ *
+ * @author nicolaslopez
+ */
+public final class PasswordEncoders {
+
+    public static final String BCRYPT = "bcrypt";
+    public static final String PBKDF2 = "pbkdf2";
+
+    private PasswordEncoders() {
+    }
+
+    /**
+     * @param encoding id of the encoding of new hashes, bcrypt or pbkdf2
+     * @param bcryptStrength log rounds of new BCrypt hashes, 4 to 31
+     * @return encoder matching every known encoding and hashing with the target one
+     * @throws IllegalArgumentException if the encoding is unknown
+     */
+    public static PasswordEncoder delegating(String encoding, int bcryptStrength) {
+        PasswordEncoder bcrypt = new BCryptStrengthPasswordEncoder(bcryptStrength);
+        Map<String, PasswordEncoder> encoders = new HashMap<>();
+        encoders.put(BCRYPT, bcrypt);
+        encoders.put(PBKDF2, new Pbkdf2PasswordEncoder());
+        if (!encoders.containsKey(encoding)) {
+            throw new IllegalArgumentException("Unknown password encoding " + encoding);
+        }
+        DelegatingPasswordEncoder delegating = new DelegatingPasswordEncoder(encoding, encoders);
+        delegating.setDefaultPasswordEncoderForMatches(bcrypt);
+        return delegating;
+    }
+
+    /**
+     * BCrypt asking for an upgrade of any hash of another strength, BCryptPasswordEncoder only upgrades
+     * weaker hashes.
+     */
+    static final class BCryptStrengthPasswordEncoder extends BCryptPasswordEncoder {
+
+        private static final Pattern STRENGTH = Pattern.compile("\\A\\$2[aby]?\\$(\\d\\d)\\$");
+
+        private final int strength;
+
+        BCryptStrengthPasswordEncoder(int strength) {
+            super(strength);
+            this.strength = strength;
+        }
+
+        @Override
+        public boolean upgradeEncoding(String encodedPassword) {
+            Matcher matcher = encodedPassword == null ? null : STRENGTH.matcher(encodedPassword);
+            return matcher != null && matcher.find() && Integer.parseInt(matcher.group(1)) != strength;
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package com.nicolaslopez82.sms.security;
+
+import com.nicolaslopez82.sms.domain.RevokedToken;
+import com.nicolaslopez82.sms.repository.RevokedTokenRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Revoked Java Web Tokens, checked by the JwtTokenFilter on every authenticated request.
+ *
+ * A token is revoked by its identifier (jti), or with every token of its user issued up to the
+ * revocation. The revocations are stored in the revoked_token table and held in memory in two exact
+ * maps, fronted by a Bloom filter of their keys: a token of a user without revocations, the common case,
+ * is accepted after two filter lookups, without touching the maps, the database or the network.
+ * A filter hit is confirmed by the maps.
+ *
+ * Revocations are kept until the revoked tokens expire. Bloom filters can not forget, so the purge
+ * drops the expired revocations from the maps and the table, then swaps in a filter rebuilt from the maps.
+ * Revocations and the purge are serialized by a lock, not a monitor, so a virtual thread writing
+ * a revocation does not pin its carrier; checks read the current filter without locking.
+ *
+ * @author nicolaslopez
+ */
+@Component
+public class TokenRevocationList {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TokenRevocationList.class);
+
+    private static final String TOKEN_KEY = "t:";
+    private static final String USER_KEY = "u:";
+    private static final double FALSE_POSITIVE_PROBABILITY = 0.01;
+    //String of 36 characters, map node and Long
+    private static final long TOKEN_ENTRY_BYTES = 160;
+    //String of a short username, map node and Revocation
+    private static final long USER_ENTRY_BYTES = 140;
+
+    private final RevokedTokenRepository revokedTokenRepository;
+    private final long validityInMilliseconds;
+    private final long expectedRevocations;
+
+    private final ConcurrentMap<String, Long> revokedTokens = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Revocation> revokedUsers = new ConcurrentHashMap<>();
+    private volatile BloomFilter filter;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final LongAdder negativeChecks = new LongAdder();
+    private final LongAdder revokedChecks = new LongAdder();
+    private final LongAdder clearedChecks = new LongAdder();
+
+    @Autowired
+    public TokenRevocationList(RevokedTokenRepository revokedTokenRepository,
+                               @Value("${security.jwt.token.expiration}") long validityInMilliseconds,
+                               @Value("${security.jwt.revocation.expected-revocations:100000}") long expectedRevocations) {
+        this.revokedTokenRepository = revokedTokenRepository;
+        this.validityInMilliseconds = validityInMilliseconds;
+        this.expectedRevocations = expectedRevocations;
+        this.filter = new BloomFilter(expectedRevocations, FALSE_POSITIVE_PROBABILITY);
+    }
+
+    /**
+     * Load the revocations of the tokens not yet expired.
+     */
+    @PostConstruct
+    public void load() {
+        lock.lock();
+        try {
+            long now = System.currentTimeMillis();
+            for (RevokedToken revoked : revokedTokenRepository.findByExpiresAtGreaterThan(now)) {
+                remember(revoked);
+            }
+            rebuildFilter();
+            LOGGER.info("Loaded {} token and {} user revocations", revokedTokens.size(), revokedUsers.size());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param token verified token
+     * @return true if the token, or every token of its user issued up to its issue time, is revoked
+     */
+    public boolean isRevoked(VerifiedToken token) {
+        BloomFilter current = filter;
+        boolean tokenHit = token.getId() != null && current.mightContain(TOKEN_KEY + token.getId());
+        boolean userHit = current.mightContain(USER_KEY + token.getUsername());
+        if (!tokenHit && !userHit) {
+            negativeChecks.increment();
+            return false;
+        }
+        Revocation user = userHit ? revokedUsers.get(token.getUsername()) : null;
+        if ((tokenHit && revokedTokens.containsKey(token.getId()))
+                || (user != null && token.getIssuedAt() <= user.revokedAt)) {
+            revokedChecks.increment();
+            return true;
+        }
+        clearedChecks.increment();
+        return false;
+    }
+
+    /**
+     * Revoke a single token.
+     *
+     * @param tokenId identifier (jti) of the token
+     * @param username subject of the token, null if unknown
+     * @param expiresAt expiration of the token in epoch milliseconds, the revocation is kept until then
+     */
+    public void revokeToken(String tokenId, String username, long expiresAt) {
+        lock.lock();
+        try {
+            remember(revokedTokenRepository.save(
+                    new RevokedToken(tokenId, username, System.currentTimeMillis(), expiresAt)));
+            filter.put(TOKEN_KEY + tokenId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Revoke a single token of unknown expiration, kept for the validity of new tokens.
+     *
+     * @param tokenId identifier (jti) of the token
+     */
+    public void revokeToken(String tokenId) {
+        revokeToken(tokenId, null, System.currentTimeMillis() + validityInMilliseconds);
+    }
+
+    /**
+     * Revoke every token of a user issued so far. Token issue times are in seconds, so a token issued
+     * later within the same second is revoked too.
+     *
+     * @param username subject of the tokens
+     */
+    public void revokeUser(String username) {
+        lock.lock();
+        try {
+            long now = System.currentTimeMillis();
+            remember(revokedTokenRepository.save(new RevokedToken(null, username, now, now + validityInMilliseconds)));
+            filter.put(USER_KEY + username);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Forget the revocations of expired tokens.
+     */
+    @Scheduled(fixedDelayString = "${security.jwt.revocation.purge-interval:60000}")
+    public void purge() {
+        lock.lock();
+        try {
+            long now = System.currentTimeMillis();
+            int before = revokedTokens.size() + revokedUsers.size();
+            revokedTokens.values().removeIf(expiresAt -> expiresAt <= now);
+            revokedUsers.values().removeIf(revocation -> revocation.expiresAt <= now);
+            if (revokedTokens.size() + revokedUsers.size() < before) {
+                rebuildFilter();
+            }
+            revokedTokenRepository.deleteExpired(now);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return number of revoked tokens and users held in memory
+     */
+    public int size() {
+        return revokedTokens.size() + revokedUsers.size();
+    }
+
+    /**
+     * @return size of the Bloom filter in bytes
+     */
+    public long getFilterBytes() {
+        return filter.getBytes();
+    }
+
+    /**
+     * @return estimated size of the exact maps in bytes
+     */
+    public long getEstimatedMapBytes() {
+        return revokedTokens.size() * TOKEN_ENTRY_BYTES + revokedUsers.size() * USER_ENTRY_BYTES;
+    }
+
+    /**
+     * @return number of checks answered by the Bloom filter alone
+     */
+    public long getNegativeChecks() {
+        return negativeChecks.sum();
+    }
+
+    /**
+     * @return number of checks of revoked tokens
+     */
+    public long getRevokedChecks() {
+        return revokedChecks.sum();
+    }
+
+    /**
+     * @return number of checks with a Bloom filter hit cleared by the maps: a false positive, or a token
+     * issued after the revocation of its user
+     */
+    public long getClearedChecks() {
+        return clearedChecks.sum();
+    }
+
+    private void remember(RevokedToken revoked) {
+        if (revoked.getTokenId() != null) {
+            revokedTokens.merge(revoked.getTokenId(), revoked.getExpiresAt(), Math::max);
+        } else {
+            revokedUsers.merge(revoked.getUsername(), new Revocation(revoked.getRevokedAt(), revoked.getExpiresAt()),
+                    (old, latest) -> new Revocation(Math.max(old.revokedAt, latest.revokedAt),
+                            Math.max(old.expiresAt, latest.expiresAt)));
+        }
+    }
+
+    /**
+     * Replace the filter by one holding the current revocations, sized for twice their number if
+     * that exceeds the expected revocations.
+     */
+    private void rebuildFilter() {
+        BloomFilter rebuilt = new BloomFilter(Math.max(expectedRevocations, 2L * size()), FALSE_POSITIVE_PROBABILITY);
+        revokedTokens.keySet().forEach(tokenId -> rebuilt.put(TOKEN_KEY + tokenId));
+        revokedUsers.keySet().forEach(username -> rebuilt.put(USER_KEY + username));
+        filter = rebuilt;
+    }
+
+    private static final class Revocation {
+
+        private final long revokedAt;
+        private final long expiresAt;
+
+        Revocation(long revokedAt, long expiresAt) {
+            this.revokedAt = revokedAt;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
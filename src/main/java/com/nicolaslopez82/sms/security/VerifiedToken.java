@@ -0,0 +1,80 @@
+package com.nicolaslopez82.sms.security;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.List;
+
+/**
+ * Claims of a Java Web Token whose signature and expiration were verified.
+ *
+ * @author nicolaslopez
+ */
+public class VerifiedToken {
+
+    private final String id;
+    private final String username;
+    private final List<GrantedAuthority> roles;
+    private final long issuedAt;
+    private final long expiresAt;
+
+    /**
+     * Constructor to fully initialize the VerifiedToken.
+     *
+     * @param id identifier of the token (jti), null for tokens issued without one
+     * @param username subject of the token
+     * @param roles roles granted by the token
+     * @param issuedAt issue time of the token in epoch milliseconds, truncated to the second
+     * @param expiresAt expiration of the token in epoch milliseconds
+     */
+    public VerifiedToken(String id, String username, List<GrantedAuthority> roles, long issuedAt, long expiresAt) {
+        this.id = id;
+        this.username = username;
+        this.roles = roles;
+        this.issuedAt = issuedAt;
+        this.expiresAt = expiresAt;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public List<GrantedAuthority> getRoles() {
+        return roles;
+    }
+
+    public long getIssuedAt() {
+        return issuedAt;
+    }
+
+    public long getExpiresAt() {
+        return expiresAt;
+    }
+
+    /**
+     * @param now current time in epoch milliseconds
+     * @return true if the token is expired at the given time
+     */
+    public boolean isExpired(long now) {
+        return now >= expiresAt;
+    }
+
+    /**
+     * @return the user and roles of the token, without password
+     */
+    public UserDetails toUserDetails() {
+        return User.withUsername(username)
+                .authorities(roles)
+                .password("") //token does not have password but field may not be empty
+                .accountExpired(false)
+                .accountLocked(false)
+                .credentialsExpired(false)
+                .disabled(false)
+                .build();
+    }
+}
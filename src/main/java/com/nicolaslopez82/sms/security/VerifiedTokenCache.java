@@ -0,0 +1,118 @@
+package com.nicolaslopez82.sms.security;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of verified Java Web Tokens, keyed by the SHA-256 hash of the token so a repeated
+ * bearer token skips the signature verification. Entries are dropped once the token expires.
+ *
+ * @author nicolaslopez
+ */
+public class VerifiedTokenCache {
+
+    private final ConcurrentMap<ByteBuffer, VerifiedToken> tokens = new ConcurrentHashMap<>();
+    private final int maximumSize;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param maximumSize maximum number of cached tokens, 0 disables the cache.
+     */
+    public VerifiedTokenCache(int maximumSize) {
+        this.maximumSize = maximumSize;
+    }
+
+    /**
+     * Lookup a verified token.
+     *
+     * @param token jwt string
+     * @param now current time in epoch milliseconds
+     * @return the VerifiedToken if cached and not expired, null otherwise
+     */
+    public VerifiedToken get(String token, long now) {
+        if (maximumSize <= 0) {
+            return null;
+        }
+        ByteBuffer key = hash(token);
+        VerifiedToken verified = tokens.get(key);
+        if (verified != null && verified.isExpired(now)) {
+            tokens.remove(key, verified);
+            verified = null;
+        }
+        if (verified == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return verified;
+    }
+
+    /**
+     * Cache a verified token, making room by dropping expired tokens first and then arbitrary ones.
+     *
+     * @param token jwt string
+     * @param verified the claims of the token
+     * @param now current time in epoch milliseconds
+     */
+    public void put(String token, VerifiedToken verified, long now) {
+        if (maximumSize <= 0) {
+            return;
+        }
+        if (tokens.size() >= maximumSize) {
+            makeRoom(now);
+        }
+        tokens.put(hash(token), verified);
+    }
+
+    private void makeRoom(long now) {
+        for (Iterator<VerifiedToken> iterator = tokens.values().iterator(); iterator.hasNext(); ) {
+            if (iterator.next().isExpired(now)) {
+                iterator.remove();
+                evictions.increment();
+            }
+        }
+        //still full: drop a tenth of the entries so the next puts do not scan again
+        int toEvict = tokens.size() - maximumSize + Math.max(1, maximumSize / 10);
+        for (Iterator<VerifiedToken> iterator = tokens.values().iterator(); toEvict > 0 && iterator.hasNext(); toEvict--) {
+            iterator.next();
+            iterator.remove();
+            evictions.increment();
+        }
+    }
+
+    private static ByteBuffer hash(String token) {
+        try {
+            return ByteBuffer.wrap(MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public int size() {
+        return tokens.size();
+    }
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+}
@@ -1,15 +1,18 @@
 package com.nicolaslopez82.sms.security;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.config.annotation.authentication.builders.AuthenticationManagerBuilder;
 import org.springframework.security.config.annotation.method.configuration.EnableGlobalMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.builders.WebSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
 import org.springframework.security.config.http.SessionCreationPolicy;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
@@ -20,6 +23,44 @@ public class WebSecurityConfiguration extends WebSecurityConfigurerAdapter{
     @Autowired
     private ExploreCaliUserDetailsService userDetailsService;
 
+    @Autowired
+    private CaffeineUserCache userCache;
+
+    @Autowired
+    private JwtProvider jwtProvider;
+
+    @Autowired
+    private TokenRevocationList tokenRevocationList;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${security.password-encoder.encoding:bcrypt}")
+    private String passwordEncoding;
+
+    @Value("${security.password-encoder.bcrypt.strength:12}")
+    private int bcryptStrength;
+
+    @Value("${security.password-encoder.threads:2}")
+    private int passwordEncoderThreads;
+
+    @Value("${security.password-encoder.queue-capacity:16}")
+    private int passwordEncoderQueueCapacity;
+
+    /**
+     * Authenticate against ExploreCaliUserDetailsService, with the users cached for a short time and their
+     * password rehashed on sign in when the stored hash is not of the target encoding.
+     */
+    @Override
+    protected void configure(AuthenticationManagerBuilder auth) {
+        DaoAuthenticationProvider provider = new DaoAuthenticationProvider();
+        provider.setUserDetailsService(userDetailsService);
+        provider.setPasswordEncoder(passwordEncoder(meterRegistry));
+        provider.setUserCache(userCache);
+        provider.setUserDetailsPasswordService(userDetailsService);
+        auth.authenticationProvider(provider);
+    }
+
     @Override
     protected void configure(HttpSecurity http) throws Exception {
 
@@ -29,6 +70,8 @@ public class WebSecurityConfiguration extends WebSecurityConfigurerAdapter{
                 .antMatchers("/tours/**").permitAll()
                 .antMatchers("/ratings/**").permitAll()
                 .antMatchers("/users/signin").permitAll()
+                .antMatchers("/actuator/health", "/actuator/prometheus").permitAll()
+                .antMatchers("/actuator/**").hasRole("ADMIN")
                 // Disallow everything else..
                 .anyRequest().authenticated();
 
@@ -38,7 +81,7 @@ public class WebSecurityConfiguration extends WebSecurityConfigurerAdapter{
         // No session will be created or used by spring security
         http.sessionManagement().sessionCreationPolicy(SessionCreationPolicy.STATELESS);
 
-        http.addFilterBefore(new JwtTokenFilter(userDetailsService), UsernamePasswordAuthenticationFilter.class);
+        http.addFilterBefore(new JwtTokenFilter(jwtProvider, tokenRevocationList), UsernamePasswordAuthenticationFilter.class);
     }
 
     @Override
@@ -58,8 +101,13 @@ public class WebSecurityConfiguration extends WebSecurityConfigurerAdapter{
         return super.authenticationManagerBean();
     }
 
+    /**
+     * Versioned password hashing off the request threads, on a bounded pool shut down with the context.
+     */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder(12);
+    public PasswordEncoder passwordEncoder(MeterRegistry meterRegistry) {
+        return new BoundedPasswordEncoder(new TimedPasswordEncoder(
+                PasswordEncoders.delegating(passwordEncoding, bcryptStrength), meterRegistry),
+                passwordEncoderThreads, passwordEncoderQueueCapacity, meterRegistry);
     }
 }
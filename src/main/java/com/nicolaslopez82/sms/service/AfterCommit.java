@@ -0,0 +1,34 @@
+package com.nicolaslopez82.sms.service;
+
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Defers the work of the JPA Entity Listeners until the transaction of the change commits, as their callbacks
+ * run before: a change rolled back is never applied, and a change is applied once other transactions see it.
+ *
+ * @author nicolaslopez
+ */
+final class AfterCommit {
+
+    private AfterCommit() {
+    }
+
+    /**
+     * Run an action once the current transaction commits, right away without a transaction.
+     *
+     * @param action action to run
+     */
+    static void run(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,33 @@
+package com.nicolaslopez82.sms.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+/**
+ * JPA Entity Listener bumping the catalog version of TourVersions on every Tour or TourPackage save or delete,
+ * once the transaction of the change commits, so a tag is never paired with the data before the change.
+ *
+ * @author nicolaslopez
+ */
+@Component
+public class CatalogChangeListener {
+
+    private TourVersions tourVersions;
+
+    @Autowired
+    public CatalogChangeListener(@Lazy TourVersions tourVersions) {
+        this.tourVersions = tourVersions;
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void changed(Object entity) {
+        AfterCommit.run(tourVersions::catalogChanged);
+    }
+}
@@ -0,0 +1,87 @@
+package com.nicolaslopez82.sms.service;
+
+import com.nicolaslopez82.sms.web.RatingDto;
+
+/**
+ * Rating mutation of a customer for a tour waiting in the RatingWriteBehindQueue.
+ *
+ * A replacing mutation (POST, PUT) sets the score and the comment, a patch (PATCH) only the non null ones,
+ * and a deletion removes the rating.
+ *
+ * @author nicolaslopez
+ */
+class PendingRating {
+
+    private final int tourId;
+    private final int customerId;
+    private final Integer score;
+    private final String comment;
+    private final boolean replace;
+    private final boolean deleted;
+
+    PendingRating(int tourId, int customerId, Integer score, String comment, boolean replace, boolean deleted) {
+        this.tourId = tourId;
+        this.customerId = customerId;
+        this.score = score;
+        this.comment = comment;
+        this.replace = replace;
+        this.deleted = deleted;
+    }
+
+    static PendingRating deletion(int tourId, int customerId) {
+        return new PendingRating(tourId, customerId, null, null, true, true);
+    }
+
+    /**
+     * @return key of the (tourId, customerId) pair
+     */
+    static long key(int tourId, int customerId) {
+        return ((long) tourId << 32) | (customerId & 0xFFFFFFFFL);
+    }
+
+    long key() {
+        return key(tourId, customerId);
+    }
+
+    /**
+     * Coalesce a later mutation of the same rating into this one.
+     *
+     * @param later mutation submitted after this one
+     * @return a single mutation with the effect of both
+     */
+    PendingRating merge(PendingRating later) {
+        if (later.replace || deleted) {
+            return later;
+        }
+        return new PendingRating(tourId, customerId, later.score != null ? later.score : score,
+                later.comment != null ? later.comment : comment, replace, false);
+    }
+
+    RatingDto toDto() {
+        return new RatingDto(score, comment, customerId);
+    }
+
+    int getTourId() {
+        return tourId;
+    }
+
+    int getCustomerId() {
+        return customerId;
+    }
+
+    Integer getScore() {
+        return score;
+    }
+
+    String getComment() {
+        return comment;
+    }
+
+    boolean isReplace() {
+        return replace;
+    }
+
+    boolean isDeleted() {
+        return deleted;
+    }
+}
@@ -0,0 +1,232 @@
+package com.nicolaslopez82.sms.service;
+
+import java.util.Arrays;
+import java.util.OptionalDouble;
+import java.util.OptionalInt;
+
+/**
+ * Immutable summary of all the ratings of a Tour: count, sum, min, max and a histogram of the 0-5 scores.
+ *
+ * Every mutation returns a new instance so readers always see a consistent snapshot.
+ */
+public final class RatingAggregate {
+
+    public static final int MIN_SCORE = 0;
+    public static final int MAX_SCORE = 5;
+
+    public static final RatingAggregate EMPTY =
+            new RatingAggregate(0, 0, Integer.MAX_VALUE, Integer.MIN_VALUE, new long[MAX_SCORE + 1]);
+
+    private final long count;
+    private final long sum;
+    private final int min;
+    private final int max;
+    private final long[] histogram;
+
+    private RatingAggregate(long count, long sum, int min, int max, long[] histogram) {
+        this.count = count;
+        this.sum = sum;
+        this.min = min;
+        this.max = max;
+        this.histogram = histogram;
+    }
+
+    /**
+     * Create the aggregate of a histogram of the 0-5 scores.
+     *
+     * @param histogram number of ratings per score, indexed by score
+     * @return the aggregate
+     */
+    public static RatingAggregate of(long[] histogram) {
+        long[] copy = Arrays.copyOf(histogram, MAX_SCORE + 1);
+        long count = 0;
+        long sum = 0;
+        for (int score = MIN_SCORE; score <= MAX_SCORE; score++) {
+            count += copy[score];
+            sum += score * copy[score];
+        }
+        return count == 0 ? EMPTY : new RatingAggregate(count, sum, lowest(copy), highest(copy), copy);
+    }
+
+    /**
+     * Add a score that was rated a number of times.
+     *
+     * @param score the score
+     * @param times how many ratings have that score
+     * @return the new aggregate
+     */
+    public RatingAggregate plus(int score, long times) {
+        if (times == 0) {
+            return this;
+        }
+        long[] newHistogram = histogram.clone();
+        if (inRange(score)) {
+            newHistogram[score] += times;
+        }
+        return new RatingAggregate(count + times, sum + score * times,
+                Math.min(min, score), Math.max(max, score), newHistogram);
+    }
+
+    /**
+     * Add a single score.
+     *
+     * @param score the score
+     * @return the new aggregate
+     */
+    public RatingAggregate plus(int score) {
+        return plus(score, 1);
+    }
+
+    /**
+     * Remove a single score.
+     *
+     * @param score the score
+     * @return the new aggregate, null if min/max can not be derived any more (out of range scores were rated).
+     */
+    public RatingAggregate minus(int score) {
+        if (count <= 1) {
+            return EMPTY;
+        }
+        long[] newHistogram = histogram.clone();
+        if (inRange(score) && newHistogram[score] > 0) {
+            newHistogram[score]--;
+        }
+        long newCount = count - 1;
+        int newMin = min;
+        int newMax = max;
+        if (score == min || score == max) {
+            if (Arrays.stream(newHistogram).sum() != newCount) {
+                return null;
+            }
+            newMin = lowest(newHistogram);
+            newMax = highest(newHistogram);
+        }
+        return new RatingAggregate(newCount, sum - score, newMin, newMax, newHistogram);
+    }
+
+    /**
+     * Replace one score by another one.
+     *
+     * @param oldScore the score before the update
+     * @param newScore the score after the update
+     * @return the new aggregate, null if min/max can not be derived any more.
+     */
+    public RatingAggregate replace(int oldScore, int newScore) {
+        if (oldScore == newScore) {
+            return this;
+        }
+        RatingAggregate removed = minus(oldScore);
+        return removed == null ? null : removed.plus(newScore);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getSum() {
+        return sum;
+    }
+
+    /**
+     * @return the average score, empty if there are no ratings.
+     */
+    public OptionalDouble getAverage() {
+        return count == 0 ? OptionalDouble.empty() : OptionalDouble.of((double) sum / count);
+    }
+
+    public int getMin() {
+        return min;
+    }
+
+    public int getMax() {
+        return max;
+    }
+
+    /**
+     * @return the population standard deviation of the scores in the histogram, empty if there are none.
+     */
+    public OptionalDouble getStandardDeviation() {
+        long n = 0;
+        long sumOfScores = 0;
+        long sumOfSquares = 0;
+        for (int score = MIN_SCORE; score <= MAX_SCORE; score++) {
+            n += histogram[score];
+            sumOfScores += score * histogram[score];
+            sumOfSquares += (long) score * score * histogram[score];
+        }
+        if (n == 0) {
+            return OptionalDouble.empty();
+        }
+        double mean = (double) sumOfScores / n;
+        return OptionalDouble.of(Math.sqrt(Math.max(0, (double) sumOfSquares / n - mean * mean)));
+    }
+
+    /**
+     * Nearest-rank percentile of the scores in the histogram: the lowest score that at least
+     * percentile % of the ratings are lower than or equal to.
+     *
+     * @param percentile percentile, above 0 and up to 100
+     * @return the score, empty if there are no ratings.
+     */
+    public OptionalInt getPercentile(double percentile) {
+        if (percentile <= 0 || percentile > 100) {
+            throw new IllegalArgumentException("percentile must be above 0 and up to 100: " + percentile);
+        }
+        long n = Arrays.stream(histogram).sum();
+        if (n == 0) {
+            return OptionalInt.empty();
+        }
+        long rank = (long) Math.ceil(percentile / 100 * n);
+        long seen = 0;
+        for (int score = MIN_SCORE; score <= MAX_SCORE; score++) {
+            seen += histogram[score];
+            if (seen >= rank) {
+                return OptionalInt.of(score);
+            }
+        }
+        return OptionalInt.of(highest(histogram));
+    }
+
+    /**
+     * @return copy of the number of ratings per score, indexed by score (0-5).
+     */
+    public long[] getHistogram() {
+        return histogram.clone();
+    }
+
+    /**
+     * @return true if every score is in the histogram, i.e. no score out of the 0-5 range was rated.
+     */
+    public boolean isHistogramComplete() {
+        return Arrays.stream(histogram).sum() == count;
+    }
+
+    private static boolean inRange(int score) {
+        return score >= MIN_SCORE && score <= MAX_SCORE;
+    }
+
+    private static int lowest(long[] histogram) {
+        for (int score = MIN_SCORE; score <= MAX_SCORE; score++) {
+            if (histogram[score] > 0) return score;
+        }
+        return Integer.MAX_VALUE;
+    }
+
+    private static int highest(long[] histogram) {
+        for (int score = MAX_SCORE; score >= MIN_SCORE; score--) {
+            if (histogram[score] > 0) return score;
+        }
+        return Integer.MIN_VALUE;
+    }
+
+    @Override
+    public String toString() {
+        return "RatingAggregate{" +
+                "count=" + count +
+                ", sum=" + sum +
+                ", min=" + min +
+                ", max=" + max +
+                ", histogram=" + Arrays.toString(histogram) +
+                '}';
+    }
+}
@@ -0,0 +1,211 @@
+package com.nicolaslopez82.sms.service;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Append-only journal of the mutations accepted by the RatingWriteBehindQueue.
+ *
+ * The journal is a sequence of segment files, ratings-<n>.journal. Mutations are appended to the
+ * current segment and made durable with group commit: the first caller of sync forces the file for
+ * every mutation written so far, the callers waiting behind it find their mutation already synced.
+ * A flush of the queue rolls to a new segment and deletes the older ones once they are in the database.
+ *
+ * append and roll must be called by one thread at a time; sync can be called concurrently. The file is
+ * forced under a lock rather than a monitor, so a virtual thread waiting on the disk unmounts from its carrier.
+ *
+ * @author nicolaslopez
+ */
+class RatingJournal implements Closeable {
+
+    private static final String PREFIX = "ratings-";
+    private static final String SUFFIX = ".journal";
+    private static final int NO_SCORE = Integer.MIN_VALUE;
+
+    private final Path directory;
+    private final ReentrantLock syncLock = new ReentrantLock();
+    private FileChannel channel;
+    private long segment;
+    private volatile long written;
+    private volatile long synced;
+
+    RatingJournal(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Read the mutations left by the previous run and open a new segment.
+     *
+     * @return the mutations of the existing segments, in the order they were appended
+     * @throws IOException if the directory or a segment can not be read
+     */
+    List<PendingRating> open() throws IOException {
+        Files.createDirectories(directory);
+        List<PendingRating> replayed = new ArrayList<>();
+        for (Path file : segments(Long.MAX_VALUE)) {
+            try (InputStream in = Files.newInputStream(file)) {
+                read(new DataInputStream(new BufferedInputStream(in)), replayed);
+            }
+        }
+        TreeMap<Long, Path> existing = segmentsByNumber();
+        segment = existing.isEmpty() ? 0 : existing.lastKey() + 1;
+        channel = openSegment(segment);
+        return replayed;
+    }
+
+    /**
+     * Write a mutation to the current segment, not yet durable.
+     *
+     * @param rating mutation
+     * @return sequence number to sync
+     * @throws IOException if the segment can not be written
+     */
+    long append(PendingRating rating) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(encode(rating));
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        return ++written;
+    }
+
+    /**
+     * Wait until a mutation is on disk.
+     *
+     * @param sequence sequence number returned by append
+     * @throws IOException if the segment can not be forced
+     */
+    void sync(long sequence) throws IOException {
+        if (synced >= sequence) {
+            return;
+        }
+        syncLock.lock();
+        try {
+            if (synced >= sequence) {
+                return;
+            }
+            long target = written;
+            channel.force(false);
+            synced = target;
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    /**
+     * Close the current segment and continue in a new one.
+     *
+     * @throws IOException if a segment can not be forced or created
+     */
+    void roll() throws IOException {
+        syncLock.lock();
+        try {
+            channel.force(false);
+            synced = written;
+            channel.close();
+            channel = openSegment(++segment);
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    /**
+     * Delete the segments before the current one.
+     *
+     * @throws IOException if a segment can not be deleted
+     */
+    void deleteRolled() throws IOException {
+        for (Path file : segments(segment)) {
+            Files.delete(file);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        syncLock.lock();
+        try {
+            if (channel != null) {
+                channel.force(false);
+                channel.close();
+            }
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    private FileChannel openSegment(long number) throws IOException {
+        return FileChannel.open(directory.resolve(PREFIX + number + SUFFIX),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * @return segment files numbered below before, in order
+     */
+    private List<Path> segments(long before) throws IOException {
+        return new ArrayList<>(segmentsByNumber().headMap(before).values());
+    }
+
+    private TreeMap<Long, Path> segmentsByNumber() throws IOException {
+        TreeMap<Long, Path> segments = new TreeMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    segments.put(Long.valueOf(name.substring(PREFIX.length(), name.length() - SUFFIX.length())), file);
+                } catch (NumberFormatException e) {
+                    //not a segment
+                }
+            }
+        }
+        return segments;
+    }
+
+    private static byte[] encode(PendingRating rating) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(rating.getTourId());
+        out.writeInt(rating.getCustomerId());
+        out.writeBoolean(rating.isReplace());
+        out.writeBoolean(rating.isDeleted());
+        out.writeInt(rating.getScore() == null ? NO_SCORE : rating.getScore());
+        out.writeBoolean(rating.getComment() != null);
+        out.writeUTF(rating.getComment() == null ? "" : rating.getComment());
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Read the mutations of a segment; a mutation cut by a crash was never acknowledged and is ignored.
+     */
+    private static void read(DataInputStream in, List<PendingRating> ratings) throws IOException {
+        while (true) {
+            try {
+                int tourId = in.readInt();
+                int customerId = in.readInt();
+                boolean replace = in.readBoolean();
+                boolean deleted = in.readBoolean();
+                int score = in.readInt();
+                boolean hasComment = in.readBoolean();
+                String comment = in.readUTF();
+                ratings.add(new PendingRating(tourId, customerId, score == NO_SCORE ? null : score,
+                        hasComment ? comment : null, replace, deleted));
+            } catch (EOFException e) {
+                return;
+            }
+        }
+    }
+}
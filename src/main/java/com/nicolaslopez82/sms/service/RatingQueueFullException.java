@@ -0,0 +1,13 @@
+package com.nicolaslopez82.sms.service;
+
+/**
+ * The RatingWriteBehindQueue has no room for a new rating within the offer timeout.
+ *
+ * @author nicolaslopez
+ */
+public class RatingQueueFullException extends RuntimeException {
+
+    public RatingQueueFullException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,146 @@
+package com.nicolaslopez82.sms.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.ConcurrentStatsCounter;
+import com.github.benmanes.caffeine.cache.stats.StatsCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Pre-serialized UTF-8 JSON of the hot rating reads of a tour (its average, the first page of its ratings),
+ * so a hit is written to the response without mapping or serializing anything.
+ *
+ * The responses of a tour are grouped in one entry of a Caffeine cache, bounded by the total size of the
+ * responses (max-bytes) with its W-TinyLFU eviction, so the hot tours stay. The bytes are held in direct
+ * ByteBuffers, outside the heap (they count against -XX:MaxDirectMemorySize).
+ *
+ * An entry carries the ratings version of TourVersions read before its responses were rendered: it is
+ * dropped by TourRatingAggregates on every rating change of the tour, and a response rendered from data
+ * older than the current version is neither stored nor returned.
+ *
+ * @author nicolaslopez
+ */
+@Component
+public class RatingResponseCache {
+
+    //per tour, to bound the variants of sort and size of its first page
+    private static final int MAX_RESPONSES = 16;
+    private static final int ENTRY_OVERHEAD = 64;
+
+    //hits and misses are of the responses, not of their tour
+    private final StatsCounter stats = new ConcurrentStatsCounter();
+    private final Cache<Integer, TourResponses> cache;
+    private TourVersions tourVersions;
+    private boolean enabled;
+
+    /**
+     * @param maxBytes maximum total size of the cached responses, 0 disables the cache
+     */
+    @Autowired
+    public RatingResponseCache(TourVersions tourVersions,
+                               @Value("${com.nicolaslopez82.sms.ratings.response-cache.max-bytes:33554432}") long maxBytes,
+                               MeterRegistry meterRegistry) {
+        this.tourVersions = tourVersions;
+        this.enabled = maxBytes > 0;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(Math.max(0, maxBytes))
+                .weigher((Integer tourId, TourResponses responses) -> responses.weight)
+                .recordStats(() -> stats)
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "ratings.responses");
+    }
+
+    /**
+     * Lookup a response of a tour.
+     *
+     * @param tourId tour identifier
+     * @param variant name of the response, e.g. its path and parameters
+     * @return read-only view of the JSON bytes, empty if not cached or stale
+     */
+    public Optional<ByteBuffer> get(int tourId, String variant) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        TourResponses responses = cache.asMap().get(tourId);
+        ByteBuffer json = responses == null || responses.version != tourVersions.ratingsVersion(tourId) ? null
+                : responses.json.get(variant);
+        if (json == null) {
+            stats.recordMisses(1);
+            return Optional.empty();
+        }
+        stats.recordHits(1);
+        return Optional.of(json.asReadOnlyBuffer());
+    }
+
+    /**
+     * Cache a response of a tour, unless the ratings of the tour changed since it was rendered.
+     *
+     * @param tourId tour identifier
+     * @param version ratings version of the tour read before the response was rendered
+     * @param variant name of the response
+     * @param json JSON bytes
+     */
+    public void put(int tourId, long version, String variant, byte[] json) {
+        if (!enabled) {
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.allocateDirect(json.length);
+        buffer.put(json).flip();
+        cache.asMap().compute(tourId, (id, responses) -> {
+            if (version != tourVersions.ratingsVersion(tourId)) {
+                return responses;
+            }
+            if (responses == null || responses.version != version) {
+                responses = new TourResponses(version, Collections.emptyMap());
+            }
+            return responses.with(variant, buffer);
+        });
+    }
+
+    /**
+     * Drop the responses of a tour.
+     *
+     * @param tourId tour identifier
+     */
+    public void invalidate(int tourId) {
+        if (enabled) {
+            cache.invalidate(tourId);
+        }
+    }
+
+    private static final class TourResponses {
+
+        private final long version;
+        private final Map<String, ByteBuffer> json;
+        private final int weight;
+
+        private TourResponses(long version, Map<String, ByteBuffer> json) {
+            this.version = version;
+            this.json = json;
+            long bytes = 0;
+            for (Map.Entry<String, ByteBuffer> response : json.entrySet()) {
+                bytes += ENTRY_OVERHEAD + 2L * response.getKey().length() + response.getValue().capacity();
+            }
+            this.weight = (int) Math.min(Integer.MAX_VALUE, bytes);
+        }
+
+        private TourResponses with(String variant, ByteBuffer buffer) {
+            if (json.size() >= MAX_RESPONSES && !json.containsKey(variant)) {
+                return this;
+            }
+            Map<String, ByteBuffer> copy = new HashMap<>(json);
+            copy.put(variant, buffer);
+            return new TourResponses(version, copy);
+        }
+    }
+}
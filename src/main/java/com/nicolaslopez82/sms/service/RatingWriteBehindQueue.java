@@ -0,0 +1,393 @@
+package com.nicolaslopez82.sms.service;
+
+import com.nicolaslopez82.sms.domain.Tour;
+import com.nicolaslopez82.sms.domain.TourRating;
+import com.nicolaslopez82.sms.repository.TourRatingRepository;
+import com.nicolaslopez82.sms.repository.TourRepository;
+import com.nicolaslopez82.sms.web.RatingDto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Write-behind queue of the TourRating mutations (create, update, patch, delete).
+ *
+ * A mutation is acknowledged once it is in memory (and in the journal, when one is configured), and is
+ * written to the database by the next flush, in transactions of batch-size ratings. Successive mutations
+ * of the same (tour, customer) pair are coalesced into one, so a rating edited several times between two
+ * flushes is written once. A flush upserts: a created rating that already exists in the database replaces it.
+ *
+ * The number of distinct pending ratings is bounded by the capacity; when it is reached, submit waits up to
+ * the offer timeout and then fails with RatingQueueFullException.
+ *
+ * With a journal directory, every mutation is appended to a local journal, fsynced with group commit before
+ * it is acknowledged, and replayed on startup, so an acknowledged rating survives a crash.
+ *
+ * Enabled by com.nicolaslopez82.sms.ratings.write-behind.enabled=true
+ *
+ * @author nicolaslopez
+ */
+@Component
+@ConditionalOnProperty(name = "com.nicolaslopez82.sms.ratings.write-behind.enabled", havingValue = "true")
+public class RatingWriteBehindQueue {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RatingWriteBehindQueue.class);
+
+    private TourRatingRepository tourRatingRepository;
+    private TourRepository tourRepository;
+    private TourRatingAggregates tourRatingAggregates;
+    private TransactionTemplate transactionTemplate;
+    private int capacity;
+    private int batchSize;
+    private long offerTimeout;
+    private RatingJournal journal;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+    //held by a flush across its JDBC writes, a lock rather than a monitor so a virtual thread waiting is not pinned
+    private final ReentrantLock flushLock = new ReentrantLock();
+    //guarded by lock: pending mutations by (tourId, customerId)
+    private Map<Long, PendingRating> pending = new LinkedHashMap<>();
+    //guarded by lock: mutations taken by the running flush, still visible to isRated until they are written
+    private Map<Long, PendingRating> flushing = Collections.emptyMap();
+    //guarded by lock: number of the flushing mutations not written yet, they still take room
+    private int unwritten;
+
+    @Autowired
+    public RatingWriteBehindQueue(TourRatingRepository tourRatingRepository, TourRepository tourRepository,
+                                  TourRatingAggregates tourRatingAggregates,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${com.nicolaslopez82.sms.ratings.write-behind.capacity:10000}") int capacity,
+                                  @Value("${com.nicolaslopez82.sms.ratings.write-behind.batch-size:500}") int batchSize,
+                                  @Value("${com.nicolaslopez82.sms.ratings.write-behind.offer-timeout:100}") long offerTimeout,
+                                  @Value("${com.nicolaslopez82.sms.ratings.write-behind.journal-dir:}") String journalDir) {
+        this.tourRatingRepository = tourRatingRepository;
+        this.tourRepository = tourRepository;
+        this.tourRatingAggregates = tourRatingAggregates;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.offerTimeout = offerTimeout;
+        this.journal = journalDir.isEmpty() ? null : new RatingJournal(Paths.get(journalDir));
+    }
+
+    /**
+     * Replay the journal of the previous run, its mutations are written by the first flush.
+     *
+     * @throws IOException if the journal can not be read
+     */
+    @PostConstruct
+    public void open() throws IOException {
+        if (journal != null) {
+            List<PendingRating> replayed = journal.open();
+            for (PendingRating rating : replayed) {
+                pending.merge(rating.key(), rating, PendingRating::merge);
+            }
+            if (!replayed.isEmpty()) {
+                LOGGER.info("Replayed {} rating mutations of {} ratings from the journal", replayed.size(), pending.size());
+            }
+        }
+    }
+
+    /**
+     * Accept a replacing (POST, PUT) or patching (PATCH) rating of a tour.
+     *
+     * @param tourId tour identifier
+     * @param ratingDto rating data transfer object
+     * @param replace true to set the score and the comment, false to set only the non null ones
+     * @return the rating as it will be written, after coalescing with the pending mutations
+     * @throws RatingQueueFullException if there is no room within the offer timeout
+     */
+    public RatingDto submit(int tourId, RatingDto ratingDto, boolean replace) throws RatingQueueFullException {
+        return submit(new PendingRating(tourId, ratingDto.getCustomerId(), ratingDto.getScore(),
+                ratingDto.getComment(), replace, false)).toDto();
+    }
+
+    /**
+     * Accept the deletion of a rating.
+     *
+     * @param tourId tour identifier
+     * @param customerId customer identifier
+     * @throws RatingQueueFullException if there is no room within the offer timeout
+     */
+    public void submitDelete(int tourId, int customerId) throws RatingQueueFullException {
+        submit(PendingRating.deletion(tourId, customerId));
+    }
+
+    /**
+     * Check whether a customer rated a tour, taking the pending mutations into account.
+     *
+     * @param tourId tour identifier
+     * @param customerId customer identifier
+     * @return true if the rating exists once the pending mutations are written
+     */
+    public boolean isRated(int tourId, int customerId) {
+        PendingRating rating;
+        lock.lock();
+        try {
+            rating = pending.get(PendingRating.key(tourId, customerId));
+            if (rating == null) {
+                rating = flushing.get(PendingRating.key(tourId, customerId));
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (rating != null) {
+            return !rating.isDeleted();
+        }
+        return tourRatingRepository.findByTourIdAndCustomerId(tourId, customerId).isPresent();
+    }
+
+    /**
+     * @return number of distinct ratings waiting to be written
+     */
+    public int size() {
+        lock.lock();
+        try {
+            return pending.size() + unwritten;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Write the pending mutations to the database.
+     *
+     * A batch that fails is retried rating by rating; ratings rejected by the database (or of a deleted tour) are dropped,
+     * the others stay in the queue (and the journal) for the next flush.
+     * The scheduler pool (spring.task.scheduling.pool.size) has a thread for it besides the other scheduled tasks.
+     */
+    @Scheduled(fixedDelayString = "${com.nicolaslopez82.sms.ratings.write-behind.flush-interval:200}")
+    public void flush() {
+        flushLock.lock();
+        try {
+            List<PendingRating> ratings;
+            lock.lock();
+            try {
+                if (pending.isEmpty()) {
+                    return;
+                }
+                if (journal != null) {
+                    journal.roll();
+                }
+                ratings = new ArrayList<>(pending.values());
+                flushing = pending;
+                unwritten = pending.size();
+                pending = new LinkedHashMap<>();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                lock.unlock();
+            }
+            long start = System.nanoTime();
+            boolean written = true;
+            for (int from = 0; from < ratings.size(); from += batchSize) {
+                List<PendingRating> batch = ratings.subList(from, Math.min(from + batchSize, ratings.size()));
+                try {
+                    write(batch);
+                    written(batch.size());
+                } catch (RuntimeException e) {
+                    LOGGER.warn("Writing {} ratings failed, retrying them one by one", batch.size(), e);
+                    written &= writeOneByOne(batch);
+                }
+            }
+            lock.lock();
+            try {
+                flushing = Collections.emptyMap();
+            } finally {
+                lock.unlock();
+            }
+            if (written && journal != null) {
+                try {
+                    journal.deleteRolled();
+                } catch (IOException e) {
+                    LOGGER.error("Unable to delete the flushed rating journal", e);
+                }
+            }
+            LOGGER.debug("Flushed {} ratings in {} ms", ratings.size(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Write the pending mutations and close the journal.
+     *
+     * @throws IOException if the journal can not be closed
+     */
+    @PreDestroy
+    public void close() throws IOException {
+        flush();
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    private PendingRating submit(PendingRating rating) {
+        PendingRating merged;
+        long sequence = 0;
+        lock.lock();
+        try {
+            long nanos = TimeUnit.MILLISECONDS.toNanos(offerTimeout);
+            //coalescing into a pending rating takes no room
+            while (!pending.containsKey(rating.key()) && pending.size() + unwritten >= capacity) {
+                if (nanos <= 0) {
+                    throw new RatingQueueFullException("Too many pending ratings, retry later");
+                }
+                nanos = notFull.awaitNanos(nanos);
+            }
+            if (journal != null) {
+                sequence = journal.append(rating);
+            }
+            merged = pending.merge(rating.key(), rating, PendingRating::merge);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RatingQueueFullException("Interrupted while waiting for room");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.unlock();
+        }
+        if (journal != null) {
+            try {
+                journal.sync(sequence);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Free the room of written (or dropped) ratings.
+     */
+    private void written(int ratings) {
+        lock.lock();
+        try {
+            unwritten -= ratings;
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Write the ratings in one transaction, then update the aggregates.
+     */
+    private void write(List<PendingRating> ratings) {
+        List<Runnable> aggregateUpdates = transactionTemplate.execute(status -> {
+            List<Runnable> updates = new ArrayList<>(ratings.size());
+            for (PendingRating rating : ratings) {
+                apply(rating).ifPresent(updates::add);
+            }
+            return updates;
+        });
+        for (Runnable update : aggregateUpdates) {
+            update.run();
+        }
+    }
+
+    /**
+     * @return true if no rating had to be kept for the next flush
+     */
+    private boolean writeOneByOne(List<PendingRating> ratings) {
+        List<PendingRating> failed = new ArrayList<>();
+        for (PendingRating rating : ratings) {
+            try {
+                write(Collections.singletonList(rating));
+                written(1);
+            } catch (DataIntegrityViolationException | NoSuchElementException e) {
+                LOGGER.error("Dropping the rating of tour {} by customer {}", rating.getTourId(),
+                        rating.getCustomerId(), e);
+                written(1);
+            } catch (RuntimeException e) {
+                failed.add(rating);
+            }
+        }
+        if (!failed.isEmpty()) {
+            LOGGER.error("Unable to write {} ratings, keeping them for the next flush", failed.size());
+            requeue(failed);
+        }
+        return failed.isEmpty();
+    }
+
+    /**
+     * Put back ratings that could not be written, before the mutations submitted since the flush started.
+     */
+    private void requeue(List<PendingRating> ratings) {
+        lock.lock();
+        try {
+            Map<Long, PendingRating> requeued = new LinkedHashMap<>();
+            for (PendingRating rating : ratings) {
+                requeued.put(rating.key(), rating);
+            }
+            for (PendingRating later : pending.values()) {
+                requeued.merge(later.key(), later, PendingRating::merge);
+            }
+            pending = requeued;
+            unwritten -= ratings.size();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Apply a mutation to the rating in the persistence context.
+     *
+     * @return the update of the aggregates, to run once the transaction is committed
+     */
+    private Optional<Runnable> apply(PendingRating rating) {
+        int tourId = rating.getTourId();
+        Optional<TourRating> stored = tourRatingRepository.findByTourIdAndCustomerId(tourId, rating.getCustomerId());
+        if (stored.isPresent()) {
+            TourRating tourRating = stored.get();
+            int oldScore = tourRating.getScore();
+            if (rating.isDeleted()) {
+                tourRatingRepository.delete(tourRating);
+                return Optional.of(() -> tourRatingAggregates.removed(tourId, oldScore));
+            }
+            if (rating.isReplace() || rating.getScore() != null) {
+                tourRating.setScore(rating.getScore());
+            }
+            if (rating.isReplace() || rating.getComment() != null) {
+                tourRating.setComment(rating.getComment());
+            }
+            int newScore = tourRatingRepository.save(tourRating).getScore();
+            return Optional.of(() -> tourRatingAggregates.updated(tourId, oldScore, newScore));
+        }
+        if (rating.isDeleted() || rating.getScore() == null) {
+            LOGGER.debug("Nothing to write for the rating of tour {} by customer {}", tourId, rating.getCustomerId());
+            return Optional.empty();
+        }
+        Tour tour = tourRepository.findById(tourId).orElseThrow(() ->
+                new NoSuchElementException("Tour does not exist " + tourId));
+        tourRatingRepository.save(new TourRating(tour, rating.getCustomerId(), rating.getScore(), rating.getComment()));
+        int score = rating.getScore();
+        return Optional.of(() -> tourRatingAggregates.added(tourId, score));
+    }
+}
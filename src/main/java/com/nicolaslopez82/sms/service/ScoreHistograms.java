@@ -0,0 +1,194 @@
+package com.nicolaslopez82.sms.service;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Map of tour identifier to the number of ratings per score (0-5), without boxing.
+ *
+ * The keys are kept in an open-addressing int table with linear probing and the six counters of a tour
+ * in one long array, at six times the slot of its key. The table is kept at most half full.
+ *
+ * Not thread-safe: it is filled by one thread, then read.
+ *
+ * @author nicolaslopez
+ */
+class ScoreHistograms {
+
+    static final int SCORES = RatingAggregate.MAX_SCORE + 1;
+
+    private static final int FREE = Integer.MIN_VALUE;
+    private static final int MAGIC = 0x53484953;
+
+    private int[] keys;
+    private long[] counts;
+    private int size;
+
+    ScoreHistograms(int expectedTours) {
+        int capacity = Integer.highestOneBit(Math.max(8, expectedTours * 2 - 1)) << 1;
+        keys = new int[capacity];
+        Arrays.fill(keys, FREE);
+        counts = new long[capacity * SCORES];
+    }
+
+    /**
+     * Add ratings with a score to the histogram of a tour.
+     *
+     * @param tourId tour identifier, not Integer.MIN_VALUE
+     * @param score score, 0 to 5
+     * @param times number of ratings
+     */
+    void add(int tourId, int score, long times) {
+        if (score < RatingAggregate.MIN_SCORE || score > RatingAggregate.MAX_SCORE) {
+            throw new IllegalArgumentException("score out of range: " + score);
+        }
+        //find the slot first, it may grow the arrays
+        int slot = slot(tourId);
+        counts[slot * SCORES + score] += times;
+    }
+
+    /**
+     * Copy the histogram of a tour.
+     *
+     * @param tourId tour identifier
+     * @return the number of ratings per score, indexed by score, all zeros if the tour is not in the map
+     */
+    long[] get(int tourId) {
+        int slot = find(tourId);
+        return slot < 0 ? new long[SCORES] : Arrays.copyOfRange(counts, slot * SCORES, slot * SCORES + SCORES);
+    }
+
+    /**
+     * Call the consumer with the histogram of every tour, in no particular order.
+     * The array is reused between calls.
+     *
+     * @param consumer histogram consumer
+     */
+    void forEach(HistogramConsumer consumer) {
+        long[] histogram = new long[SCORES];
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != FREE) {
+                System.arraycopy(counts, slot * SCORES, histogram, 0, SCORES);
+                consumer.accept(keys[slot], histogram);
+            }
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Write the map as the number of tours, then the tour identifier and six counters of each tour.
+     *
+     * @param out output
+     * @throws IOException if the output can not be written
+     */
+    void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(size);
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != FREE) {
+                out.writeInt(keys[slot]);
+                for (int score = 0; score < SCORES; score++) {
+                    out.writeLong(counts[slot * SCORES + score]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Read a map written by writeTo.
+     *
+     * @param in input
+     * @return the map
+     * @throws IOException if the input can not be read or was not written by writeTo
+     */
+    static ScoreHistograms readFrom(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a score histograms snapshot");
+        }
+        int tours = in.readInt();
+        ScoreHistograms histograms = new ScoreHistograms(tours);
+        for (int i = 0; i < tours; i++) {
+            int base = histograms.slot(in.readInt()) * SCORES;
+            for (int score = 0; score < SCORES; score++) {
+                histograms.counts[base + score] = in.readLong();
+            }
+        }
+        return histograms;
+    }
+
+    /**
+     * @return the slot of a tour, added if it is not in the map
+     */
+    private int slot(int tourId) {
+        if (tourId == FREE) {
+            throw new IllegalArgumentException("Invalid tour identifier " + tourId);
+        }
+        int slot = find(tourId);
+        if (slot >= 0) {
+            return slot;
+        }
+        if ((size + 1) * 2 > keys.length) {
+            grow();
+        }
+        slot = index(tourId, keys.length);
+        while (keys[slot] != FREE) {
+            slot = (slot + 1) & (keys.length - 1);
+        }
+        keys[slot] = tourId;
+        size++;
+        return slot;
+    }
+
+    /**
+     * @return the slot of a tour, -1 if it is not in the map
+     */
+    private int find(int tourId) {
+        int slot = index(tourId, keys.length);
+        while (keys[slot] != FREE) {
+            if (keys[slot] == tourId) {
+                return slot;
+            }
+            slot = (slot + 1) & (keys.length - 1);
+        }
+        return -1;
+    }
+
+    private void grow() {
+        int[] oldKeys = keys;
+        long[] oldCounts = counts;
+        keys = new int[oldKeys.length * 2];
+        Arrays.fill(keys, FREE);
+        counts = new long[keys.length * SCORES];
+        for (int oldSlot = 0; oldSlot < oldKeys.length; oldSlot++) {
+            if (oldKeys[oldSlot] != FREE) {
+                int slot = index(oldKeys[oldSlot], keys.length);
+                while (keys[slot] != FREE) {
+                    slot = (slot + 1) & (keys.length - 1);
+                }
+                keys[slot] = oldKeys[oldSlot];
+                System.arraycopy(oldCounts, oldSlot * SCORES, counts, slot * SCORES, SCORES);
+            }
+        }
+    }
+
+    /**
+     * Spread sequential identifiers over the table (Fibonacci hashing).
+     */
+    private static int index(int tourId, int capacity) {
+        return (tourId * 0x9E3779B9) >>> (32 - Integer.numberOfTrailingZeros(capacity));
+    }
+
+    /**
+     * Receives the histogram of a tour.
+     */
+    @FunctionalInterface
+    interface HistogramConsumer {
+
+        void accept(int tourId, long[] histogram);
+    }
+}
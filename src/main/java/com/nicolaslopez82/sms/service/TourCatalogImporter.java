@@ -0,0 +1,186 @@
+package com.nicolaslopez82.sms.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.nicolaslopez82.sms.domain.Difficulty;
+import com.nicolaslopez82.sms.domain.Region;
+import com.nicolaslopez82.sms.domain.Tour;
+import com.nicolaslopez82.sms.domain.TourPackage;
+import com.nicolaslopez82.sms.repository.TourPackageRepository;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManagerFactory;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Import the Tours of a JSON catalog (e.g. ExploreCalifornia.json) when the application starts.
+ *
+ * The file is read with a streaming JsonParser, so it is never fully loaded, and the tours are
+ * written with JDBC batches by a small pool of writers while the next batch is parsed.
+ * The imported tours bypass JPA, so the Tour second-level and query caches are evicted after the import,
+ * and TourSearchIndex picks them up when it is rebuilt on ApplicationReadyEvent, which is published after the import;
+ * the catalog version of TourVersions is bumped, as CatalogChangeListener does not see them either.
+ *
+ * Enabled by the program argument --com.nicolaslopez82.sms.importfile=<filename>
+ *
+ * @author nicolaslopez
+ */
+@Component
+@ConditionalOnProperty(name = "com.nicolaslopez82.sms.importfile")
+public class TourCatalogImporter implements CommandLineRunner {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TourCatalogImporter.class);
+
+    private static final String INSERT = "INSERT INTO tour (tour_package_code, title, description, blurb, bullets, " +
+            "price, duration, difficulty, region, keywords) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private TourPackageRepository tourPackageRepository;
+    private JdbcTemplate jdbcTemplate;
+    private EntityManagerFactory entityManagerFactory;
+    private TourVersions tourVersions;
+    private String importFile;
+    private int batchSize;
+    private int writers;
+
+    @Autowired
+    public TourCatalogImporter(TourPackageRepository tourPackageRepository, JdbcTemplate jdbcTemplate,
+                               EntityManagerFactory entityManagerFactory, TourVersions tourVersions,
+                               @Value("${com.nicolaslopez82.sms.importfile}") String importFile,
+                               @Value("${com.nicolaslopez82.sms.import.batch-size:1000}") int batchSize,
+                               @Value("${com.nicolaslopez82.sms.import.writers:4}") int writers) {
+        this.tourPackageRepository = tourPackageRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.entityManagerFactory = entityManagerFactory;
+        this.tourVersions = tourVersions;
+        this.importFile = importFile;
+        this.batchSize = batchSize;
+        this.writers = writers;
+    }
+
+    @Override
+    public void run(String... args) throws Exception {
+        try (InputStream in = new FileInputStream(importFile)) {
+            importTours(in);
+        }
+        Cache cache = entityManagerFactory.unwrap(SessionFactory.class).getCache();
+        cache.evictEntityData(Tour.class);
+        cache.evictQueryRegions();
+        tourVersions.catalogChanged();
+    }
+
+    /**
+     * Import a JSON array of tours.
+     *
+     * @param in JSON catalog
+     * @return number of imported tours
+     * @throws IOException if the catalog can not be read or parsed
+     */
+    public long importTours(InputStream in) throws IOException {
+        long start = System.nanoTime();
+        long imported = 0;
+        long rejected = 0;
+        Map<String, Optional<TourPackage>> packages = new HashMap<>();
+        //bounded queue and caller-runs: the parser waits for the writers instead of buffering the whole file
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(writers, writers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(writers), new ThreadPoolExecutor.CallerRunsPolicy());
+        List<Future<int[]>> pending = new ArrayList<>();
+        try (JsonParser parser = new JsonFactory().createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IOException("Expected a JSON array of tours");
+            }
+            List<Object[]> batch = new ArrayList<>(batchSize);
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                Map<String, String> fields = readFields(parser);
+                Optional<TourPackage> tourPackage = packages.computeIfAbsent(fields.get("packageType"),
+                        tourPackageRepository::findByName);
+                Object[] row = tourPackage.isPresent() ? toRow(tourPackage.get(), fields) : null;
+                if (row == null) {
+                    LOGGER.debug("Skipping tour {}", fields.get("title"));
+                    rejected++;
+                    continue;
+                }
+                batch.add(row);
+                if (batch.size() == batchSize) {
+                    pending.add(write(executor, batch));
+                    imported += batch.size();
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            if (!batch.isEmpty()) {
+                pending.add(write(executor, batch));
+                imported += batch.size();
+            }
+            for (Future<int[]> batchResult : pending) {
+                batchResult.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Import interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Import failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        long millis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        LOGGER.info("Imported {} tours ({} skipped, unknown package, region, difficulty or price) in {} ms, {} rows/s", imported, rejected, millis,
+                imported * 1000 / millis);
+        return imported;
+    }
+
+    private Future<int[]> write(ThreadPoolExecutor executor, List<Object[]> batch) {
+        return executor.submit(() -> jdbcTemplate.batchUpdate(INSERT, batch));
+    }
+
+    private static Map<String, String> readFields(JsonParser parser) throws IOException {
+        Map<String, String> fields = new HashMap<>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            parser.nextToken();
+            fields.put(name, parser.getValueAsString());
+        }
+        return fields;
+    }
+
+    /**
+     * @return the column values of the tour, null if the region, difficulty or price is not valid.
+     */
+    private static Object[] toRow(TourPackage tourPackage, Map<String, String> fields) {
+        Region region = Region.findByLabel(fields.get("region"));
+        Difficulty difficulty;
+        Integer price;
+        try {
+            difficulty = Difficulty.valueOf(fields.get("difficulty"));
+            price = Integer.valueOf(fields.get("price"));
+        } catch (IllegalArgumentException | NullPointerException e) {
+            return null;
+        }
+        if (region == null) {
+            return null;
+        }
+        return new Object[]{tourPackage.getCode(), fields.get("title"), fields.get("description"),
+                fields.get("blurb"), fields.get("bullets"), price, fields.get("length"), difficulty.name(),
+                region.getLabel(), fields.get("keywords")};
+    }
+}
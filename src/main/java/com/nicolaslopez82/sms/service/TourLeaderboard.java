@@ -0,0 +1,253 @@
+package com.nicolaslopez82.sms.service;
+
+import com.nicolaslopez82.sms.domain.Difficulty;
+import com.nicolaslopez82.sms.domain.Region;
+import com.nicolaslopez82.sms.domain.Tour;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Tours ranked by average score, kept current by TourRatingAggregates and TourSearchIndexListener.
+ *
+ * Every ranked tour is in one skip list of all the tours and in the skip lists of its Region, Difficulty
+ * and TourPackage code, ordered by average score, then number of ratings. The top N of a facet is
+ * the head of its skip list, so a query walks N entries (plus the ones rejected by a second filter
+ * or a higher minimum count), whatever the number of tours and ratings.
+ *
+ * Only tours with at least min-count ratings are ranked.
+ *
+ * @author nicolaslopez
+ */
+@Component
+public class TourLeaderboard {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TourLeaderboard.class);
+
+    private final ConcurrentMap<Integer, Entry> entries = new ConcurrentHashMap<>();
+    private final NavigableSet<Entry> all = new ConcurrentSkipListSet<>();
+    private final Map<Region, NavigableSet<Entry>> regions = new EnumMap<>(Region.class);
+    private final Map<Difficulty, NavigableSet<Entry>> difficulties = new EnumMap<>(Difficulty.class);
+    private final ConcurrentMap<String, NavigableSet<Entry>> packages = new ConcurrentHashMap<>();
+
+    private TourSearchIndex tourSearchIndex;
+    private long minCount;
+
+    @Autowired
+    public TourLeaderboard(TourSearchIndex tourSearchIndex,
+                           @Value("${com.nicolaslopez82.sms.ratings.leaderboard.min-count:1}") long minCount) {
+        this.tourSearchIndex = tourSearchIndex;
+        this.minCount = Math.max(1, minCount);
+        for (Region region : Region.values()) {
+            regions.put(region, new ConcurrentSkipListSet<>());
+        }
+        for (Difficulty difficulty : Difficulty.values()) {
+            difficulties.put(difficulty, new ConcurrentSkipListSet<>());
+        }
+    }
+
+    /**
+     * Rank the tours of a snapshot of the rating aggregates, replacing the current ranking,
+     * except for the tours changed since the snapshot was taken.
+     *
+     * @param aggregates rating aggregates by tour identifier
+     * @param changed tours whose entry is newer than the snapshot, checked within the compute of each tour
+     */
+    public void rebuild(Map<Integer, RatingAggregate> aggregates, Set<Integer> changed) {
+        long start = System.currentTimeMillis();
+        aggregates.forEach((tourId, aggregate) -> entries.compute(tourId,
+                (id, old) -> changed.contains(id) ? old : ranked(id, old, aggregate)));
+        for (Integer tourId : entries.keySet()) {
+            if (!aggregates.containsKey(tourId)) {
+                entries.computeIfPresent(tourId, (id, old) -> changed.contains(id) ? old : replace(old, null));
+            }
+        }
+        LOGGER.info("Ranked {} tours in {} ms", all.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Re-rank a tour after a change of its ratings.
+     *
+     * @param tourId tour identifier
+     * @param aggregate the new aggregate of the tour
+     */
+    public void updated(int tourId, RatingAggregate aggregate) {
+        entries.compute(tourId, (id, old) -> ranked(id, old, aggregate));
+    }
+
+    /**
+     * Move a tour to the facets of its new Region, Difficulty or TourPackage.
+     *
+     * @param tour saved tour
+     */
+    public void tourChanged(Tour tour) {
+        entries.computeIfPresent(tour.getId(), (id, old) -> replace(old, new Entry(tour, old.count, old.sum)));
+    }
+
+    /**
+     * Stop ranking a tour.
+     *
+     * @param tourId tour identifier
+     */
+    public void removed(int tourId) {
+        entries.computeIfPresent(tourId, (id, old) -> replace(old, null));
+    }
+
+    /**
+     * Get the best rated tours, every filter is optional.
+     *
+     * @param region only tours of this region
+     * @param difficulty only tours of this difficulty
+     * @param packageCode only tours of this tour package
+     * @param minRatings only tours with at least this number of ratings (min-count if lower)
+     * @param limit maximum number of tours
+     * @return the tours by descending average score, then descending number of ratings
+     */
+    public List<Ranked> top(Region region, Difficulty difficulty, String packageCode, long minRatings, int limit) {
+        NavigableSet<Entry> ranking;
+        if (packageCode != null) {
+            ranking = packages.getOrDefault(packageCode, Collections.emptyNavigableSet());
+        } else if (region != null) {
+            ranking = regions.get(region);
+        } else if (difficulty != null) {
+            ranking = difficulties.get(difficulty);
+        } else {
+            ranking = all;
+        }
+        List<Ranked> top = new ArrayList<>(Math.min(limit, 100));
+        for (Entry entry : ranking) {
+            if (top.size() == limit) {
+                break;
+            }
+            //skip a replaced entry seen while it is moved
+            if (entries.get(entry.tour.getId()) != entry || entry.count < minRatings
+                    || (region != null && entry.region != region)
+                    || (difficulty != null && entry.difficulty != difficulty)) {
+                continue;
+            }
+            top.add(new Ranked(entry.tour, entry.getAverage(), entry.count));
+        }
+        return top;
+    }
+
+    /**
+     * Swap the entry of a tour in the skip lists, called within the compute of its map entry.
+     *
+     * @return the entry to keep in the map, null to remove the tour
+     */
+    private Entry replace(Entry old, Entry entry) {
+        if (old != null) {
+            facets(old).forEach(ranking -> ranking.remove(old));
+        }
+        if (entry == null || entry.count == 0) {
+            return null;
+        }
+        if (entry.count >= minCount) {
+            facets(entry).forEach(ranking -> ranking.add(entry));
+        }
+        return entry;
+    }
+
+    private Entry ranked(int tourId, Entry old, RatingAggregate aggregate) {
+        Tour tour = old != null ? old.tour : tourSearchIndex.find(tourId).orElse(null);
+        return replace(old, tour == null ? null : new Entry(tour, aggregate));
+    }
+
+    private List<NavigableSet<Entry>> facets(Entry entry) {
+        List<NavigableSet<Entry>> facets = new ArrayList<>(4);
+        facets.add(all);
+        if (entry.region != null) {
+            facets.add(regions.get(entry.region));
+        }
+        if (entry.difficulty != null) {
+            facets.add(difficulties.get(entry.difficulty));
+        }
+        if (entry.packageCode != null) {
+            facets.add(packages.computeIfAbsent(entry.packageCode, code -> new ConcurrentSkipListSet<>()));
+        }
+        return facets;
+    }
+
+    /**
+     * A ranked tour with its average score and number of ratings.
+     */
+    public static final class Ranked {
+
+        private final Tour tour;
+        private final double average;
+        private final long count;
+
+        Ranked(Tour tour, double average, long count) {
+            this.tour = tour;
+            this.average = average;
+            this.count = count;
+        }
+
+        public Tour getTour() {
+            return tour;
+        }
+
+        public double getAverage() {
+            return average;
+        }
+
+        public long getCount() {
+            return count;
+        }
+    }
+
+    /**
+     * Immutable ranking entry, ordered by descending average, descending count, then tour identifier.
+     * Averages are compared as sum1 * count2 against sum2 * count1, so equal averages are equal.
+     * The facets are copied from the Tour, which may be changed before the entry is replaced.
+     */
+    private static final class Entry implements Comparable<Entry> {
+
+        private final Tour tour;
+        private final Region region;
+        private final Difficulty difficulty;
+        private final String packageCode;
+        private final long count;
+        private final long sum;
+
+        Entry(Tour tour, RatingAggregate aggregate) {
+            this(tour, aggregate.getCount(), aggregate.getSum());
+        }
+
+        Entry(Tour tour, long count, long sum) {
+            this.tour = tour;
+            this.region = tour.getRegion();
+            this.difficulty = tour.getDifficulty();
+            this.packageCode = tour.getTourPackage() == null ? null : tour.getTourPackage().getCode();
+            this.count = count;
+            this.sum = sum;
+        }
+
+        double getAverage() {
+            return (double) sum / count;
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            int byAverage = Long.compare(other.sum * count, sum * other.count);
+            if (byAverage != 0) {
+                return byAverage;
+            }
+            int byCount = Long.compare(other.count, count);
+            return byCount != 0 ? byCount : Integer.compare(tour.getId(), other.tour.getId());
+        }
+    }
+}
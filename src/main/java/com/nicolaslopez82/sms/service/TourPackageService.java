@@ -1,20 +1,43 @@
 package com.nicolaslopez82.sms.service;
 
 import com.nicolaslopez82.sms.domain.TourPackage;
+import com.nicolaslopez82.sms.repository.TourPackageJdbcRepository;
 import com.nicolaslopez82.sms.repository.TourPackageRepository;
+import com.nicolaslopez82.sms.web.BulkPackageResult;
+import org.hibernate.SessionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import javax.persistence.EntityManagerFactory;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
 public class TourPackageService {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(TourPackageService.class);
+
     public TourPackageRepository tourPackageRepository;
+    private TourPackageJdbcRepository tourPackageJdbcRepository;
+    private EntityManagerFactory entityManagerFactory;
+    private TourVersions tourVersions;
 
     @Autowired
-    public TourPackageService(TourPackageRepository tourPackageRepository){
+    public TourPackageService(TourPackageRepository tourPackageRepository,
+                              TourPackageJdbcRepository tourPackageJdbcRepository,
+                              EntityManagerFactory entityManagerFactory, TourVersions tourVersions){
         this.tourPackageRepository = tourPackageRepository;
+        this.tourPackageJdbcRepository = tourPackageJdbcRepository;
+        this.entityManagerFactory = entityManagerFactory;
+        this.tourVersions = tourVersions;
     }
 
     /**
@@ -26,10 +49,42 @@ public class TourPackageService {
      * @return new or existing tour package.
      */
     public TourPackage createTourPackage(String code, String name){
-        return tourPackageRepository.findById(code).orElse(
+        return tourPackageRepository.findById(code).orElseGet(() ->
                 tourPackageRepository.save(new TourPackage(code, name)));
     }
 
+    /**
+     * Create the Tour Packages whose code does not exist yet; the existing ones are left unchanged,
+     * so the same packages can be sent again.
+     *
+     * The existing codes are looked up with a single IN query and the missing packages inserted with
+     * a single JDBC batch; the query cache and the catalog version are only touched if a package was created.
+     *
+     * @param tourPackages tour packages, the first one of a code wins
+     * @return number of created packages and of the others
+     */
+    public BulkPackageResult createTourPackages(List<TourPackage> tourPackages) {
+        Map<String, TourPackage> distinct = new LinkedHashMap<>();
+        for (TourPackage tourPackage : tourPackages) {
+            distinct.putIfAbsent(tourPackage.getCode(), tourPackage);
+        }
+        Set<String> existing = distinct.isEmpty() ? Collections.emptySet()
+                : new HashSet<>(tourPackageJdbcRepository.findCodes(distinct.keySet()));
+        List<TourPackage> missing = distinct.values().stream()
+                .filter(tourPackage -> !existing.contains(tourPackage.getCode()))
+                .collect(Collectors.toList());
+        int created = 0;
+        if (!missing.isEmpty()) {
+            created = missing.size() - tourPackageJdbcRepository.insertAll(missing).size();
+        }
+        if (created > 0) {
+            entityManagerFactory.unwrap(SessionFactory.class).getCache().evictQueryRegions();
+            tourVersions.catalogChanged();
+        }
+        LOGGER.info("Created {} of {} tour packages", created, tourPackages.size());
+        return new BulkPackageResult(created, tourPackages.size() - created);
+    }
+
     /**
      * Lookup All TourPackages.
      *
@@ -0,0 +1,316 @@
+package com.nicolaslopez82.sms.service;
+
+import com.nicolaslopez82.sms.repository.ScoreCount;
+import com.nicolaslopez82.sms.repository.TourRatingRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Per tour store of RatingAggregates kept in sync with every TourRating mutation,
+ * so the average of a tour is read without loading its ratings.
+ *
+ * The whole store is built from tour_rating with a single GROUP BY query when the application is ready,
+ * unless it was read from a snapshot, and periodically rebuilt to correct any drift (e.g. after a bulk load); a tour missing from the store
+ * is loaded on first access. Every change is passed on to the TourLeaderboard.
+ *
+ * The tours changed while a rebuild runs keep their live aggregate, as the query may have counted
+ * their scores before or after the change; they are corrected by the next rebuild.
+ *
+ * The rebuild counts the scores in ScoreHistograms, a primitive map of tour identifier to six counters.
+ * When a snapshot file is configured, the histograms are written to it after every rebuild and at shutdown,
+ * and read back at startup so the averages and distributions are served without a query per tour, nor
+ * the GROUP BY of every rating, until the first scheduled rebuild. Tours with a score out of the 0-5 range are left out of the snapshot.
+ *
+ * Every change, and every tour whose scores are corrected by a rebuild, also bumps the ratings version
+ * of the tour in TourVersions and drops its responses from the RatingResponseCache.
+ *
+ * @author nicolaslopez
+ */
+@Component
+public class TourRatingAggregates {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TourRatingAggregates.class);
+
+    private final ConcurrentMap<Integer, RatingAggregate> aggregates = new ConcurrentHashMap<>();
+    //tours changed since the scores of the running rebuild were counted, null between rebuilds
+    private volatile Set<Integer> changedDuringRebuild;
+    private TourRatingRepository tourRatingRepository;
+    private TourLeaderboard tourLeaderboard;
+    private TourVersions tourVersions;
+    private RatingResponseCache ratingResponseCache;
+    private Path snapshot;
+    private boolean snapshotLoaded;
+
+    @Autowired
+    public TourRatingAggregates(TourRatingRepository tourRatingRepository, @Lazy TourLeaderboard tourLeaderboard,
+                                TourVersions tourVersions, RatingResponseCache ratingResponseCache,
+                                @Value("${com.nicolaslopez82.sms.ratings.aggregates.snapshot:}") String snapshot) {
+        this.tourRatingRepository = tourRatingRepository;
+        this.tourLeaderboard = tourLeaderboard;
+        this.tourVersions = tourVersions;
+        this.ratingResponseCache = ratingResponseCache;
+        this.snapshot = snapshot.isEmpty() ? null : Paths.get(snapshot);
+    }
+
+    /**
+     * Get the aggregate of a tour, loading it from the database on first access.
+     *
+     * @param tourId tour identifier
+     * @return the aggregate, RatingAggregate.EMPTY if the tour has no ratings.
+     */
+    public RatingAggregate get(int tourId) {
+        return aggregates.computeIfAbsent(tourId, this::load);
+    }
+
+    /**
+     * Record a new rating.
+     *
+     * @param tourId tour identifier
+     * @param score score of the new rating
+     */
+    public void added(int tourId, int score) {
+        added(tourId, score, 1);
+    }
+
+    /**
+     * Record several new ratings with the same score.
+     *
+     * @param tourId tour identifier
+     * @param score score of the new ratings
+     * @param times number of new ratings
+     */
+    public void added(int tourId, int score, long times) {
+        changing(tourId);
+        changed(tourId, aggregates.computeIfPresent(tourId, (id, aggregate) -> aggregate.plus(score, times)));
+    }
+
+    /**
+     * Record a changed score.
+     *
+     * @param tourId tour identifier
+     * @param oldScore score before the update
+     * @param newScore score after the update
+     */
+    public void updated(int tourId, int oldScore, int newScore) {
+        changing(tourId);
+        changed(tourId, aggregates.computeIfPresent(tourId, (id, aggregate) -> aggregate.replace(oldScore, newScore)));
+    }
+
+    /**
+     * Record a deleted rating.
+     *
+     * @param tourId tour identifier
+     * @param score score of the deleted rating
+     */
+    public void removed(int tourId, int score) {
+        changing(tourId);
+        changed(tourId, aggregates.computeIfPresent(tourId, (id, aggregate) -> aggregate.minus(score)));
+    }
+
+    /**
+     * Build the aggregates once the TourSearchIndex is built, or only rank the tours of the snapshot read at startup.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void ready() {
+        if (snapshotLoaded) {
+            tourLeaderboard.rebuild(new HashMap<>(aggregates), Collections.emptySet());
+        } else {
+            rebuild();
+        }
+    }
+
+    /**
+     * Recompute all the aggregates from the tour_rating table.
+     */
+    @Scheduled(initialDelayString = "${com.nicolaslopez82.sms.ratings.aggregates.reconcile-interval:3600000}",
+            fixedDelayString = "${com.nicolaslopez82.sms.ratings.aggregates.reconcile-interval:3600000}")
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        Set<Integer> changed = ConcurrentHashMap.newKeySet();
+        changedDuringRebuild = changed;
+        try {
+            List<ScoreCount> scoreCounts = tourRatingRepository.countScores();
+            ScoreHistograms histograms = new ScoreHistograms(scoreCounts.size() / ScoreHistograms.SCORES);
+            List<ScoreCount> outOfRange = new ArrayList<>();
+            for (ScoreCount scoreCount : scoreCounts) {
+                int score = scoreCount.getScore();
+                if (score >= RatingAggregate.MIN_SCORE && score <= RatingAggregate.MAX_SCORE) {
+                    histograms.add(scoreCount.getTourId(), score, scoreCount.getTotal());
+                } else {
+                    outOfRange.add(scoreCount);
+                }
+            }
+            Map<Integer, RatingAggregate> rebuilt = aggregates(histograms);
+            for (ScoreCount scoreCount : outOfRange) {
+                rebuilt.put(scoreCount.getTourId(), rebuilt.getOrDefault(scoreCount.getTourId(), RatingAggregate.EMPTY)
+                        .plus(scoreCount.getScore(), scoreCount.getTotal()));
+            }
+            List<Integer> corrected = new ArrayList<>();
+            for (Integer tourId : aggregates.keySet()) {
+                if (!rebuilt.containsKey(tourId)) {
+                    aggregates.computeIfPresent(tourId, (id, live) -> {
+                        if (changed.contains(id)) {
+                            return live;
+                        }
+                        corrected.add(id);
+                        return null;
+                    });
+                }
+            }
+            //checked within the compute of the tour, so a change is either seen here or applied after the swap
+            rebuilt.forEach((tourId, aggregate) -> aggregates.compute(tourId, (id, live) -> {
+                if (changed.contains(id)) {
+                    return live;
+                }
+                if (live != null && !sameScores(live, aggregate)) {
+                    corrected.add(id);
+                }
+                return aggregate;
+            }));
+            corrected.forEach(this::ratingsChanged);
+            tourLeaderboard.rebuild(rebuilt, changed);
+            LOGGER.info("Rebuilt rating aggregates of {} tours in {} ms, {} changed meanwhile kept", rebuilt.size(),
+                    System.currentTimeMillis() - start, changed.size());
+        } finally {
+            changedDuringRebuild = null;
+        }
+        save();
+    }
+
+    /**
+     * Read the aggregates of the snapshot file, if there is one.
+     */
+    @PostConstruct
+    public void load() {
+        if (snapshot == null || !Files.exists(snapshot)) {
+            return;
+        }
+        try (InputStream in = Files.newInputStream(snapshot)) {
+            ScoreHistograms histograms = ScoreHistograms.readFrom(new DataInputStream(new BufferedInputStream(in)));
+            aggregates.putAll(aggregates(histograms));
+            snapshotLoaded = true;
+            LOGGER.info("Loaded rating aggregates of {} tours from {}", histograms.size(), snapshot);
+        } catch (IOException e) {
+            LOGGER.warn("Ignoring the rating aggregates snapshot {}: {}", snapshot, e.toString());
+        }
+    }
+
+    /**
+     * Write the aggregates to the snapshot file, if one is configured; a tour with a score out of
+     * the 0-5 range is left out.
+     */
+    @PreDestroy
+    public void save() {
+        if (snapshot == null) {
+            return;
+        }
+        ScoreHistograms histograms = new ScoreHistograms(aggregates.size());
+        aggregates.forEach((tourId, aggregate) -> {
+            if (aggregate.isHistogramComplete()) {
+                long[] histogram = aggregate.getHistogram();
+                for (int score = RatingAggregate.MIN_SCORE; score <= RatingAggregate.MAX_SCORE; score++) {
+                    histograms.add(tourId, score, histogram[score]);
+                }
+            }
+        });
+        try {
+            Path parent = snapshot.toAbsolutePath().getParent();
+            Files.createDirectories(parent);
+            Path temporary = Files.createTempFile(parent, snapshot.getFileName().toString(), ".tmp");
+            try (OutputStream out = Files.newOutputStream(temporary)) {
+                DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+                histograms.writeTo(data);
+                data.flush();
+                Files.move(temporary, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Could not write the rating aggregates snapshot {}: {}", snapshot, e.toString());
+        }
+    }
+
+    /**
+     * Record a tour about to change for the running rebuild, if any.
+     */
+    private void changing(int tourId) {
+        Set<Integer> changed = changedDuringRebuild;
+        if (changed != null) {
+            changed.add(tourId);
+        }
+    }
+
+    /**
+     * Pass on the new aggregate of a tour, loading it if the tour was not in the store
+     * or its aggregate could not be updated.
+     */
+    private void changed(int tourId, RatingAggregate aggregate) {
+        ratingsChanged(tourId);
+        tourLeaderboard.updated(tourId, aggregate != null ? aggregate : get(tourId));
+    }
+
+    /**
+     * Bump the ratings version of a tour before dropping its cached responses,
+     * so a response rendered before the change is not cached again.
+     */
+    private void ratingsChanged(int tourId) {
+        tourVersions.ratingsChanged(tourId);
+        ratingResponseCache.invalidate(tourId);
+    }
+
+    private RatingAggregate load(int tourId) {
+        return aggregate(tourRatingRepository.countScoresByTourId(tourId));
+    }
+
+    private static Map<Integer, RatingAggregate> aggregates(ScoreHistograms histograms) {
+        Map<Integer, RatingAggregate> aggregates = new HashMap<>(histograms.size() * 2);
+        histograms.forEach((tourId, histogram) -> aggregates.put(tourId, RatingAggregate.of(histogram)));
+        return aggregates;
+    }
+
+    private static boolean sameScores(RatingAggregate aggregate, RatingAggregate rebuilt) {
+        return rebuilt != null && aggregate.getCount() == rebuilt.getCount() && aggregate.getSum() == rebuilt.getSum()
+                && Arrays.equals(aggregate.getHistogram(), rebuilt.getHistogram());
+    }
+
+    private static RatingAggregate aggregate(List<ScoreCount> scoreCounts) {
+        RatingAggregate aggregate = RatingAggregate.EMPTY;
+        for (ScoreCount scoreCount : scoreCounts) {
+            aggregate = aggregate.plus(scoreCount.getScore(), scoreCount.getTotal());
+        }
+        return aggregate;
+    }
+}
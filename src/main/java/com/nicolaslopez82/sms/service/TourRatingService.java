@@ -1,32 +1,56 @@
 package com.nicolaslopez82.sms.service;
 
+import com.nicolaslopez82.sms.domain.Difficulty;
+import com.nicolaslopez82.sms.domain.Region;
 import com.nicolaslopez82.sms.domain.Tour;
 import com.nicolaslopez82.sms.domain.TourRating;
+import com.nicolaslopez82.sms.repository.RatingRow;
+import com.nicolaslopez82.sms.repository.TourRatingJdbcRepository;
 import com.nicolaslopez82.sms.repository.TourRatingRepository;
 import com.nicolaslopez82.sms.repository.TourRepository;
+import com.nicolaslopez82.sms.web.BulkRatingResult;
+import com.nicolaslopez82.sms.web.LeaderboardEntry;
+import com.nicolaslopez82.sms.web.RatingCursorPage;
+import com.nicolaslopez82.sms.web.RatingDistribution;
 import com.nicolaslopez82.sms.web.RatingDto;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class TourRatingService {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(TourRatingService.class);
+    private static final int[] PERCENTILES = {25, 50, 75, 90, 99};
     private TourRatingRepository tourRatingRepository;
     private TourRepository tourRepository;
+    private TourRatingAggregates tourRatingAggregates;
+    private TourRatingJdbcRepository tourRatingJdbcRepository;
+    private TourLeaderboard tourLeaderboard;
+    private int batchSize;
 
     @Autowired
-    public TourRatingService(TourRatingRepository tourRatingRepository, TourRepository tourRepository) {
+    public TourRatingService(TourRatingRepository tourRatingRepository, TourRepository tourRepository,
+                             TourRatingAggregates tourRatingAggregates, TourRatingJdbcRepository tourRatingJdbcRepository,
+                             TourLeaderboard tourLeaderboard,
+                             @Value("${com.nicolaslopez82.sms.ratings.batch-size:500}") int batchSize) {
         this.tourRatingRepository = tourRatingRepository;
         this.tourRepository = tourRepository;
+        this.tourRatingAggregates = tourRatingAggregates;
+        this.tourRatingJdbcRepository = tourRatingJdbcRepository;
+        this.tourLeaderboard = tourLeaderboard;
+        this.batchSize = batchSize;
     }
 
     /**
@@ -36,12 +60,13 @@ public class TourRatingService {
      * @param ratingDto rating data transfer object
      */
     public void createTourRating(Tour tour, RatingDto ratingDto) throws NoSuchElementException {
-        LOGGER.info("Create Rating for tour {} of customers {}", tour.getId(), ratingDto.getCustomerId());
+        LOGGER.debug("Create Rating for tour {} of customers {}", tour.getId(), ratingDto.getCustomerId());
         tourRatingRepository.save(
                 new TourRating(tour,
                                 ratingDto.getCustomerId(),
                                 ratingDto.getScore(),
                                 ratingDto.getComment()));
+        tourRatingAggregates.added(tour.getId(), ratingDto.getScore());
     }
 
     /**
@@ -60,7 +85,7 @@ public class TourRatingService {
      * @return List of TourRatings
      */
     public List<TourRating> lookupAll()  {
-        LOGGER.info("Lookup all Ratings");
+        LOGGER.debug("Lookup all Ratings");
         return tourRatingRepository.findAll();
     }
 
@@ -71,9 +96,23 @@ public class TourRatingService {
      * @return All Tour Ratings as RatingDto's
      */
     public List<RatingDto> getAllRatingsForTour(Tour tour){
-        LOGGER.info("Lookup Rating for tour {}", tour.getId());
-        return tourRatingRepository.findByTourId(tour.getId()).stream()
-                .map(RatingDto::new).collect(Collectors.toList());
+        LOGGER.debug("Lookup Rating for tour {}", tour.getId());
+        return tourRatingRepository.findRatingsByTourId(tour.getId());
+    }
+
+    /**
+     * Feed the Ratings of a tour one by one to a consumer, reading them forward only so the
+     * memory used does not depend on the number of ratings.
+     *
+     * @param tour Tour.
+     * @param consumer receives every rating as a RatingDto
+     */
+    @Transactional(readOnly = true)
+    public void forEachRatingOfTour(Tour tour, Consumer<RatingDto> consumer) {
+        LOGGER.debug("Stream Ratings for tour {}", tour.getId());
+        try (Stream<RatingDto> ratings = tourRatingRepository.streamRatingsByTourId(tour.getId())) {
+            ratings.forEach(consumer);
+        }
     }
 
     /**
@@ -85,7 +124,7 @@ public class TourRatingService {
      * @throws NoSuchElementException if no Tour found.
      */
     public Page<TourRating> lookupRatings(int tourId, Pageable pageable) throws NoSuchElementException  {
-        LOGGER.info("Lookup Rating for tour {}", tourId);
+        LOGGER.debug("Lookup Rating for tour {}", tourId);
         return tourRatingRepository.findByTourId(verifyTour(tourId).getId(), pageable);
     }
 
@@ -97,13 +136,33 @@ public class TourRatingService {
      * @return Requested page of Tour Ratings as RatingDto's
      */
     public Page<RatingDto> getRatings(Tour tour, Pageable pageable){
-        LOGGER.info("Getting the ratings for tour {}", tour.getId());
-        Page<TourRating> ratings = tourRatingRepository.findByTourId(tour.getId(), pageable);
-        return new PageImpl<>(
-                ratings.get().map(RatingDto::new).collect(Collectors.toList()),
-                pageable,
-                ratings.getTotalElements()
-        );
+        LOGGER.debug("Getting the ratings for tour {}", tour.getId());
+        return tourRatingRepository.findRatingsByTourId(tour.getId(), pageable);
+    }
+
+    /**
+     * Lookup the Ratings of a tour that follow a cursor, seeking on the rating identifier
+     * instead of counting and skipping an offset.
+     *
+     * @param tour Tour.
+     * @param afterId identifier of the last rating of the previous page, null for the first page
+     * @param size page size
+     * @param withTotal true to include the total number of ratings (served from the aggregates)
+     * @return Requested page of Tour Ratings as RatingDto's with the cursor of the next page
+     */
+    public RatingCursorPage getRatingsAfter(Tour tour, Integer afterId, int size, boolean withTotal) {
+        LOGGER.debug("Getting the ratings for tour {} after {}", tour.getId(), afterId);
+        List<RatingRow> ratings = tourRatingRepository.findRatingRowsAfter(tour.getId(),
+                afterId == null ? Integer.MIN_VALUE : afterId, PageRequest.of(0, size + 1));
+        String next = null;
+        if (ratings.size() > size) {
+            ratings = ratings.subList(0, size);
+            next = RatingCursorPage.encodeCursor(ratings.get(size - 1).getId());
+        }
+        return new RatingCursorPage(ratings.stream()
+                .map(row -> new RatingDto(row.getScore(), row.getComment(), row.getCustomerId()))
+                .collect(Collectors.toList()), next,
+                withTotal ? tourRatingAggregates.get(tour.getId()).getCount() : null);
     }
 
     /**
@@ -113,29 +172,89 @@ public class TourRatingService {
      * @return Tuple of "average" and the average value.
      */
     public Map<String, Double> getAverage(Tour tour){
-        LOGGER.info("Getting the average rating for tour {}", tour.getId());
+        LOGGER.debug("Getting the average rating for tour {}", tour.getId());
         Map<String, Double> mapResult = new HashMap<>();
-        mapResult.put("average",tourRatingRepository.findByTourId(tour.getId()).stream()
-                .mapToInt(TourRating::getScore).average()
+        mapResult.put("average", tourRatingAggregates.get(tour.getId()).getAverage()
                 .orElseThrow(() ->
                         new NoSuchElementException("Tour has no Ratings")));
         return mapResult;
     }
 
     /**
-     * Service for many customers to give the same score for a service
+     * Get the distribution of the scores of a Tour, from its in memory RatingAggregate.
+     *
+     * @param tour Tour.
+     * @return count, average, standard deviation, histogram and percentiles of the scores
+     */
+    public RatingDistribution getDistribution(Tour tour) {
+        LOGGER.debug("Getting the rating distribution for tour {}", tour.getId());
+        RatingAggregate aggregate = tourRatingAggregates.get(tour.getId());
+        Map<String, Integer> percentiles = new LinkedHashMap<>();
+        for (int percentile : PERCENTILES) {
+            aggregate.getPercentile(percentile).ifPresent(score -> percentiles.put("p" + percentile, score));
+        }
+        return new RatingDistribution(tour.getId(), aggregate.getCount(),
+                aggregate.getAverage().isPresent() ? aggregate.getAverage().getAsDouble() : null,
+                aggregate.getStandardDeviation().isPresent() ? aggregate.getStandardDeviation().getAsDouble() : null,
+                aggregate.getHistogram(), percentiles);
+    }
+
+    /**
+     * Get the best rated Tours, from the in memory TourLeaderboard. Every filter is optional.
+     *
+     * @param region only tours of this region
+     * @param difficulty only tours of this difficulty
+     * @param packageCode only tours of this tour package
+     * @param minRatings only tours with at least this number of ratings
+     * @param limit maximum number of tours
+     * @return the tours by descending average score, then descending number of ratings
+     */
+    public List<LeaderboardEntry> getLeaderboard(Region region, Difficulty difficulty, String packageCode,
+                                                 long minRatings, int limit) {
+        LOGGER.debug("Getting the {} best rated tours", limit);
+        List<TourLeaderboard.Ranked> top = tourLeaderboard.top(region, difficulty, packageCode, minRatings, limit);
+        List<LeaderboardEntry> leaderboard = new ArrayList<>(top.size());
+        for (TourLeaderboard.Ranked ranked : top) {
+            leaderboard.add(new LeaderboardEntry(leaderboard.size() + 1, ranked.getTour(), ranked.getAverage(),
+                    ranked.getCount()));
+        }
+        return leaderboard;
+    }
+
+    /**
+     * Service for many customers to give the same score for a service.
+     *
+     * The ratings are written in JDBC batches within one transaction; customers that already
+     * rated the tour (or are repeated in the request) are skipped instead of failing the request.
      *
      * @param tourId
      * @param score
      * @param customers
+     * @return number of created ratings and the skipped customers
      */
-    public void rateMany(int tourId,  int score, Integer [] customers) {
-        LOGGER.info("Rate tour {} by customers {}", tourId, Arrays.asList(customers).toString());
+    public BulkRatingResult rateMany(int tourId,  int score, Integer [] customers) {
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Rate tour {} by customers {}", tourId, Arrays.toString(customers));
+        }
         Tour tour = tourRepository.findById(tourId).orElseThrow(() -> new NoSuchElementException());
+        List<Integer> skipped = new ArrayList<>();
+        Set<Integer> distinct = new LinkedHashSet<>();
         for (Integer c : customers) {
-            LOGGER.debug("Attempt to create Tour Rating for customer {}", c);
-            tourRatingRepository.save(new TourRating(tour, c, score));
+            if (!distinct.add(c)) {
+                skipped.add(c);
+            }
         }
+        List<Integer> toInsert = new ArrayList<>(distinct);
+        List<Integer> existing = tourRatingJdbcRepository.findCustomerIds(tour.getId(), toInsert, batchSize);
+        toInsert.removeAll(new HashSet<>(existing));
+        skipped.addAll(existing);
+        List<Integer> rejected = tourRatingJdbcRepository.insertAll(tour.getId(), score, TourRating.toComment(score),
+                toInsert, batchSize);
+        skipped.addAll(rejected);
+        int created = toInsert.size() - rejected.size();
+        tourRatingAggregates.added(tourId, score, created);
+        LOGGER.info("Rated tour {} by {} customers, skipped {}", tourId, created, skipped.size());
+        return new BulkRatingResult(created, skipped);
     }
 
     /**
@@ -146,7 +265,7 @@ public class TourRatingService {
      * @throws NoSuchElementException if no TourRating found
      */
     public TourRating verifyTourRating(Tour tour, int customerId) throws NoSuchElementException{
-        LOGGER.info("Verifing Tour Rating for tour {} of customer {}", tour.getId(), customerId);
+        LOGGER.debug("Verifing Tour Rating for tour {} of customer {}", tour.getId(), customerId);
         return tourRatingRepository.findByTourIdAndCustomerId(tour.getId(), customerId).orElseThrow(() ->
             new NoSuchElementException("\"Tour-Rating pair for request(\"\n" +
                     "                        + tourId + \" for customer\" + customerId))"));
@@ -160,10 +279,13 @@ public class TourRatingService {
      * @return The modified Rating DTO.
      */
     public RatingDto update(TourRating tourRating, RatingDto ratingDto) throws NoSuchElementException {
-        LOGGER.info("Update Rating for tour {} of customers {}", tourRating.getTour().getId(), ratingDto.getCustomerId());
+        LOGGER.debug("Update Rating for tour {} of customers {}", tourRating.getTour().getId(), ratingDto.getCustomerId());
+        int oldScore = tourRating.getScore();
         tourRating.setScore(ratingDto.getScore());
         tourRating.setComment(ratingDto.getComment());
-        return new RatingDto(tourRatingRepository.save(tourRating));
+        RatingDto saved = new RatingDto(tourRatingRepository.save(tourRating));
+        tourRatingAggregates.updated(tourRating.getTour().getId(), oldScore, saved.getScore());
+        return saved;
     }
 
     /**
@@ -174,14 +296,17 @@ public class TourRatingService {
      * @return The modified Rating DTO.
      */
     public RatingDto updateWithPatch(TourRating tourRating, RatingDto ratingDto) throws NoSuchElementException {
-        LOGGER.info("Update-Patch Rating for tour {} of customers {}", tourRating.getTour().getId(), ratingDto.getCustomerId());
+        LOGGER.debug("Update-Patch Rating for tour {} of customers {}", tourRating.getTour().getId(), ratingDto.getCustomerId());
+        int oldScore = tourRating.getScore();
         if (ratingDto.getScore() != null) {
             tourRating.setScore(ratingDto.getScore());
         }
         if (ratingDto.getComment() != null) {
             tourRating.setComment(ratingDto.getComment());
         }
-        return new RatingDto(tourRatingRepository.save(tourRating));
+        RatingDto saved = new RatingDto(tourRatingRepository.save(tourRating));
+        tourRatingAggregates.updated(tourRating.getTour().getId(), oldScore, saved.getScore());
+        return saved;
     }
 
     /**
@@ -191,8 +316,9 @@ public class TourRatingService {
      * @param customerId customer identifier
      */
     public void delete(TourRating tourRating, int customerId) throws NoSuchElementException {
-        LOGGER.info("Delete Rating for tour: {} of customer: {}", tourRating.getTour().getId(), customerId);
+        LOGGER.debug("Delete Rating for tour: {} of customer: {}", tourRating.getTour().getId(), customerId);
         tourRatingRepository.delete(tourRating);
+        tourRatingAggregates.removed(tourRating.getTour().getId(), tourRating.getScore());
     }
 
     /**
@@ -203,7 +329,7 @@ public class TourRatingService {
      * @throws NoSuchElementException if no Tour found.
      */
     public Tour verifyTour(int tourId) throws NoSuchElementException {
-        LOGGER.info("Looking up for Rating for tour: {}", tourId);
+        LOGGER.debug("Looking up for Rating for tour: {}", tourId);
         return tourRepository.findById(tourId).orElseThrow(() ->
                 new NoSuchElementException("Tour does not exist " + tourId));
     }
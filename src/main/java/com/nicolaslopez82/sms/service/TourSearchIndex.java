@@ -0,0 +1,297 @@
+package com.nicolaslopez82.sms.service;
+
+import com.nicolaslopez82.sms.domain.Difficulty;
+import com.nicolaslopez82.sms.domain.Region;
+import com.nicolaslopez82.sms.domain.Tour;
+import com.nicolaslopez82.sms.repository.TourRepository;
+import com.nicolaslopez82.sms.web.TourSearchResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In memory search engine over the Tours.
+ *
+ * Every tour gets a slot; an inverted index maps the tokens of the title, keywords and bullets
+ * to the slots, and one bitmap per Region, Difficulty and TourPackage code and a sorted price index
+ * turn combined filters into bitmap intersections. The slot of a removed or replaced tour is cleared
+ * from every bitmap and reused by the next tour indexed.
+ *
+ * @author nicolaslopez
+ */
+@Component
+public class TourSearchIndex {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TourSearchIndex.class);
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final List<Tour> tours = new ArrayList<>();
+    private final Map<Integer, Integer> slots = new HashMap<>();
+    private final BitSet live = new BitSet();
+    private final Deque<Integer> freeSlots = new ArrayDeque<>();
+    private final Map<String, BitSet> terms = new HashMap<>();
+    private final Map<Region, BitSet> regions = new EnumMap<>(Region.class);
+    private final Map<Difficulty, BitSet> difficulties = new EnumMap<>(Difficulty.class);
+    private final Map<String, BitSet> packages = new HashMap<>();
+    private final TreeMap<Integer, BitSet> prices = new TreeMap<>();
+
+    private TourRepository tourRepository;
+
+    @Autowired
+    public TourSearchIndex(TourRepository tourRepository) {
+        this.tourRepository = tourRepository;
+    }
+
+    /**
+     * Index all the Tours in the database, replacing the current content.
+     * Runs before the other listeners of ApplicationReadyEvent, so the TourLeaderboard finds the tours.
+     * The tours are loaded with their TourPackage, read by searches after the session is closed.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        Iterable<Tour> all = tourRepository.findAllWithTourPackage();
+        int indexed;
+        lock.writeLock().lock();
+        try {
+            tours.clear();
+            slots.clear();
+            live.clear();
+            freeSlots.clear();
+            terms.clear();
+            regions.clear();
+            difficulties.clear();
+            packages.clear();
+            prices.clear();
+            all.forEach(this::add);
+            indexed = slots.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        LOGGER.info("Indexed {} tours in {} ms", indexed, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Add or replace a Tour in the index.
+     *
+     * @param tour persisted tour
+     */
+    public void index(Tour tour) {
+        lock.writeLock().lock();
+        try {
+            unindex(tour.getId());
+            add(tour);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove a Tour from the index.
+     *
+     * @param tourId tour identifier
+     */
+    public void remove(Integer tourId) {
+        lock.writeLock().lock();
+        try {
+            unindex(tourId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Lookup an indexed Tour.
+     *
+     * @param tourId tour identifier
+     * @return the Tour if indexed
+     */
+    public Optional<Tour> find(Integer tourId) {
+        lock.readLock().lock();
+        try {
+            Integer slot = slots.get(tourId);
+            return slot == null ? Optional.empty() : Optional.of(tours.get(slot));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Search the Tours matching all the given criteria, null or empty criteria match everything.
+     *
+     * @param text words that must all appear in the title, keywords or bullets
+     * @param regionFilter any of these regions
+     * @param difficultyFilter any of these difficulties
+     * @param packageFilter any of these tour package codes
+     * @param minPrice minimum price
+     * @param maxPrice maximum price
+     * @param limit maximum number of tours returned
+     * @return the matching tours with the facet counts of all the matches
+     */
+    public TourSearchResult search(String text, Collection<Region> regionFilter, Collection<Difficulty> difficultyFilter,
+                                   Collection<String> packageFilter, Integer minPrice, Integer maxPrice, int limit) {
+        lock.readLock().lock();
+        try {
+            BitSet matches = (BitSet) live.clone();
+            if (text != null) {
+                for (String token : tokenize(text)) {
+                    matches.and(terms.getOrDefault(token, new BitSet()));
+                }
+            }
+            if (regionFilter != null && !regionFilter.isEmpty()) {
+                matches.and(union(regionFilter, regions));
+            }
+            if (difficultyFilter != null && !difficultyFilter.isEmpty()) {
+                matches.and(union(difficultyFilter, difficulties));
+            }
+            if (packageFilter != null && !packageFilter.isEmpty()) {
+                matches.and(union(packageFilter, packages));
+            }
+            if (minPrice != null || maxPrice != null) {
+                BitSet inRange = new BitSet();
+                prices.subMap(minPrice == null ? Integer.MIN_VALUE : minPrice, true,
+                        maxPrice == null ? Integer.MAX_VALUE : maxPrice, true)
+                        .values().forEach(inRange::or);
+                matches.and(inRange);
+            }
+
+            List<Tour> found = new ArrayList<>();
+            for (int slot = matches.nextSetBit(0); slot >= 0 && found.size() < limit; slot = matches.nextSetBit(slot + 1)) {
+                found.add(tours.get(slot));
+            }
+            Map<String, Map<String, Integer>> facets = new LinkedHashMap<>();
+            facets.put("region", facet(matches, regions));
+            facets.put("difficulty", facet(matches, difficulties));
+            facets.put("tourPackage", facet(matches, packages));
+            return new TourSearchResult(matches.cardinality(), found, facets);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void add(Tour tour) {
+        Integer free = freeSlots.poll();
+        int slot;
+        if (free == null) {
+            slot = tours.size();
+            tours.add(tour);
+        } else {
+            slot = free;
+            tours.set(slot, tour);
+        }
+        slots.put(tour.getId(), slot);
+        live.set(slot);
+        for (String field : new String[]{tour.getTitle(), tour.getKeywords(), tour.getBullets()}) {
+            for (String token : tokenize(field)) {
+                terms.computeIfAbsent(token, t -> new BitSet()).set(slot);
+            }
+        }
+        if (tour.getRegion() != null) {
+            regions.computeIfAbsent(tour.getRegion(), r -> new BitSet()).set(slot);
+        }
+        if (tour.getDifficulty() != null) {
+            difficulties.computeIfAbsent(tour.getDifficulty(), d -> new BitSet()).set(slot);
+        }
+        if (tour.getTourPackage() != null) {
+            packages.computeIfAbsent(tour.getTourPackage().getCode(), c -> new BitSet()).set(slot);
+        }
+        if (tour.getPrice() != null) {
+            prices.computeIfAbsent(tour.getPrice(), p -> new BitSet()).set(slot);
+        }
+    }
+
+    /**
+     * Clear the slot of a tour from the bitmaps it was set in, found from the indexed tour, and free it.
+     */
+    private void unindex(Integer tourId) {
+        Integer slot = slots.remove(tourId);
+        if (slot == null) {
+            return;
+        }
+        Tour tour = tours.set(slot, null);
+        live.clear(slot);
+        for (String field : new String[]{tour.getTitle(), tour.getKeywords(), tour.getBullets()}) {
+            for (String token : tokenize(field)) {
+                clear(terms, token, slot);
+            }
+        }
+        clear(regions, tour.getRegion(), slot);
+        clear(difficulties, tour.getDifficulty(), slot);
+        if (tour.getTourPackage() != null) {
+            clear(packages, tour.getTourPackage().getCode(), slot);
+        }
+        clear(prices, tour.getPrice(), slot);
+        freeSlots.push(slot);
+    }
+
+    /**
+     * Clear a slot from a bitmap, dropping the bitmap once empty.
+     */
+    private static <K> void clear(Map<K, BitSet> bitmaps, K key, int slot) {
+        BitSet bitmap = key == null ? null : bitmaps.get(key);
+        if (bitmap != null) {
+            bitmap.clear(slot);
+            if (bitmap.isEmpty()) {
+                bitmaps.remove(key);
+            }
+        }
+    }
+
+    private static <K> BitSet union(Collection<K> keys, Map<K, BitSet> bitmaps) {
+        BitSet union = new BitSet();
+        for (K key : keys) {
+            BitSet bitmap = bitmaps.get(key);
+            if (bitmap != null) {
+                union.or(bitmap);
+            }
+        }
+        return union;
+    }
+
+    private static <K> Map<String, Integer> facet(BitSet matches, Map<K, BitSet> bitmaps) {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        bitmaps.forEach((key, bitmap) -> {
+            BitSet intersection = (BitSet) bitmap.clone();
+            intersection.and(matches);
+            int count = intersection.cardinality();
+            if (count > 0) {
+                counts.put(key.toString(), count);
+            }
+        });
+        return counts;
+    }
+
+    private static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text != null) {
+            for (String token : text.toLowerCase(Locale.ROOT).split("[^\\p{Alnum}]+")) {
+                if (!token.isEmpty()) {
+                    tokens.add(token);
+                }
+            }
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,49 @@
+package com.nicolaslopez82.sms.service;
+
+import com.nicolaslopez82.sms.domain.Tour;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+/**
+ * JPA Entity Listener keeping the TourSearchIndex and the TourLeaderboard current on every Tour save or delete.
+ * They keep a detached copy of the saved Tour, never the managed entity and its lazy TourPackage,
+ * and are updated once the transaction of the change commits.
+ *
+ * @author nicolaslopez
+ */
+@Component
+public class TourSearchIndexListener {
+
+    private TourSearchIndex tourSearchIndex;
+    private TourLeaderboard tourLeaderboard;
+
+    @Autowired
+    public TourSearchIndexListener(@Lazy TourSearchIndex tourSearchIndex, @Lazy TourLeaderboard tourLeaderboard) {
+        this.tourSearchIndex = tourSearchIndex;
+        this.tourLeaderboard = tourLeaderboard;
+    }
+
+    @PostPersist
+    @PostUpdate
+    public void saved(Tour tour) {
+        Tour copy = tour.detachedCopy();
+        AfterCommit.run(() -> {
+            tourSearchIndex.index(copy);
+            tourLeaderboard.tourChanged(copy);
+        });
+    }
+
+    @PostRemove
+    public void removed(Tour tour) {
+        Integer tourId = tour.getId();
+        AfterCommit.run(() -> {
+            tourSearchIndex.remove(tourId);
+            tourLeaderboard.removed(tourId);
+        });
+    }
+}
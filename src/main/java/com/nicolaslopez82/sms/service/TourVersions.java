@@ -0,0 +1,75 @@
+package com.nicolaslopez82.sms.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In memory versions of the catalog (Tours and TourPackages) and of the ratings of every tour,
+ * the validators of the conditional GETs answered by ConditionalGetFilter.
+ *
+ * The ratings version of a tour is bumped by TourRatingAggregates once a rating mutation is written,
+ * whether by TourRatingService or the RatingWriteBehindQueue; the catalog version and its last modification
+ * time by CatalogChangeListener and TourCatalogImporter. Versions start over at every startup,
+ * so the entity tags also carry the startup time and are never reused by the next run.
+ *
+ * @author nicolaslopez
+ */
+@Component
+public class TourVersions {
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final ConcurrentMap<Integer, AtomicLong> ratings = new ConcurrentHashMap<>();
+    private final AtomicLong catalog = new AtomicLong();
+    private volatile long catalogLastModified = System.currentTimeMillis();
+
+    /**
+     * Record a change of the ratings of a tour.
+     *
+     * @param tourId tour identifier
+     */
+    public void ratingsChanged(int tourId) {
+        ratings.computeIfAbsent(tourId, id -> new AtomicLong()).incrementAndGet();
+    }
+
+    /**
+     * Record a change of a Tour or TourPackage.
+     */
+    public void catalogChanged() {
+        catalogLastModified = System.currentTimeMillis();
+        catalog.incrementAndGet();
+    }
+
+    /**
+     * @param tourId tour identifier
+     * @return number of changes of the ratings of the tour since the startup
+     */
+    public long ratingsVersion(int tourId) {
+        AtomicLong version = ratings.get(tourId);
+        return version == null ? 0 : version.get();
+    }
+
+    /**
+     * @param tourId tour identifier
+     * @return strong entity tag of the ratings of the tour, unquoted
+     */
+    public String ratingsTag(int tourId) {
+        return "r" + tourId + "-" + epoch + "-" + ratingsVersion(tourId);
+    }
+
+    /**
+     * @return strong entity tag of the catalog, unquoted
+     */
+    public String catalogTag() {
+        return "c-" + epoch + "-" + catalog.get();
+    }
+
+    /**
+     * @return time of the last change of the catalog, or of the startup, in milliseconds
+     */
+    public long getCatalogLastModified() {
+        return catalogLastModified;
+    }
+}
@@ -5,12 +5,16 @@ import com.nicolaslopez82.sms.domain.User;
 import com.nicolaslopez82.sms.repository.RoleRepository;
 import com.nicolaslopez82.sms.repository.UserRepository;
 import com.nicolaslopez82.sms.security.JwtProvider;
+import com.nicolaslopez82.sms.security.TokenRevocationList;
+import com.nicolaslopez82.sms.security.VerifiedToken;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.userdetails.UserCache;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
@@ -27,35 +31,41 @@ public class UserService {
     private RoleRepository roleRepository;
     private PasswordEncoder passwordEncoder;
     private JwtProvider jwtProvider;
+    private UserCache userCache;
+    private TokenRevocationList tokenRevocationList;
 
     @Autowired
     public UserService(UserRepository userRepository, AuthenticationManager authenticationManager,
-                       RoleRepository roleRepository, PasswordEncoder passwordEncoder, JwtProvider jwtProvider){
+                       RoleRepository roleRepository, PasswordEncoder passwordEncoder, JwtProvider jwtProvider,
+                       UserCache userCache, TokenRevocationList tokenRevocationList){
         this.userRepository = userRepository;
         this.authenticationManager = authenticationManager;
         this.roleRepository = roleRepository;
         this.passwordEncoder = passwordEncoder;
         this.jwtProvider = jwtProvider;
+        this.userCache = userCache;
+        this.tokenRevocationList = tokenRevocationList;
     }
 
     /**
      * Sign in a user into the application, with JWT-enabled authentication
      *
+     * The user and its roles are looked up once, by the AuthenticationManager (or served from its user cache),
+     * and the roles of the token are taken from the returned Authentication.
+     *
      * @param username  username
      * @param password  password
      * @return Optional of the Java Web Token, empty otherwise
      */
     public Optional<String> signin(String username, String password) {
-        LOGGER.info("New user attempting to sign in");
+        LOGGER.debug("New user attempting to sign in");
         Optional<String> token = Optional.empty();
-        Optional<User> user = userRepository.findByUsername(username);
-        if (user.isPresent()) {
-            try {
-                authenticationManager.authenticate(new UsernamePasswordAuthenticationToken(username, password));
-                token = Optional.of(jwtProvider.createToken(username, user.get().getRoles()));
-            } catch (AuthenticationException e){
-                LOGGER.info("Log in failed for user {}", username);
-            }
+        try {
+            Authentication authentication = authenticationManager.authenticate(
+                    new UsernamePasswordAuthenticationToken(username, password));
+            token = Optional.of(jwtProvider.createToken(username, authentication.getAuthorities()));
+        } catch (AuthenticationException e){
+            LOGGER.info("Log in failed for user {}", username);
         }
         return token;
     }
@@ -70,19 +80,59 @@ public class UserService {
      * @return Optional of user, empty if the user already exists.
      */
     public Optional<User> signup(String username, String password, String firstName, String lastName) {
-        LOGGER.info("New user attempting to sign in");
+        LOGGER.debug("New user attempting to sign in");
         Optional<User> user = Optional.empty();
-        if (!userRepository.findByUsername(username).isPresent()) {
+        if (!userRepository.existsByUsername(username)) {
             Optional<Role> role = roleRepository.findByRoleName("ROLE_CSR");
             user = Optional.of(userRepository.save(new User(username,
                     passwordEncoder.encode(password),
                     role.get(),
                     firstName,
                     lastName)));
+            userCache.removeUserFromCache(username);
         }
         return user;
     }
 
+    /**
+     * Sign out by revoking the token of the request.
+     *
+     * @param token JWT of the request
+     * @return true if the token was revoked, false if it is invalid or has no identifier
+     */
+    public boolean signout(String token) {
+        Optional<VerifiedToken> verified = jwtProvider.verify(token);
+        if (!verified.isPresent() || verified.get().getId() == null) {
+            return false;
+        }
+        tokenRevocationList.revokeToken(verified.get().getId(), verified.get().getUsername(),
+                verified.get().getExpiresAt());
+        return true;
+    }
+
+    /**
+     * Revoke a token by its identifier, the jti claim.
+     *
+     * @param tokenId token identifier
+     */
+    public void revokeToken(String tokenId) {
+        tokenRevocationList.revokeToken(tokenId);
+    }
+
+    /**
+     * Revoke every token issued to a user so far.
+     *
+     * @param username username
+     * @return false if the user does not exist
+     */
+    public boolean revokeTokens(String username) {
+        if (!userRepository.existsByUsername(username)) {
+            return false;
+        }
+        tokenRevocationList.revokeUser(username);
+        return true;
+    }
+
     public List<User> getAll() {
         return userRepository.findAll();
     }
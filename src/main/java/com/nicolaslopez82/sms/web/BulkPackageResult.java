@@ -0,0 +1,32 @@
+package com.nicolaslopez82.sms.web;
+
+/**
+ * Data Transfer Object with the outcome of creating many Tour Packages.
+ */
+public class BulkPackageResult {
+
+    private int created;
+
+    private int unchanged;
+
+    /**
+     * Constructor to fully initialize the BulkPackageResult
+     *
+     * @param created number of TourPackages created
+     * @param unchanged number of TourPackages left as they were, because their code already existed
+     */
+    public BulkPackageResult(int created, int unchanged) {
+        this.created = created;
+        this.unchanged = unchanged;
+    }
+
+    protected BulkPackageResult() {}
+
+    public int getCreated() {
+        return created;
+    }
+
+    public int getUnchanged() {
+        return unchanged;
+    }
+}
@@ -0,0 +1,34 @@
+package com.nicolaslopez82.sms.web;
+
+import java.util.List;
+
+/**
+ * Data Transfer Object with the outcome of rating a Tour for many customers.
+ */
+public class BulkRatingResult {
+
+    private int created;
+
+    private List<Integer> skipped;
+
+    /**
+     * Constructor to fully initialize the BulkRatingResult
+     *
+     * @param created number of TourRatings created
+     * @param skipped customers skipped because they already rated the tour
+     */
+    public BulkRatingResult(int created, List<Integer> skipped) {
+        this.created = created;
+        this.skipped = skipped;
+    }
+
+    protected BulkRatingResult() {}
+
+    public int getCreated() {
+        return created;
+    }
+
+    public List<Integer> getSkipped() {
+        return skipped;
+    }
+}
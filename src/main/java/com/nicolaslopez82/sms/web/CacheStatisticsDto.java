@@ -0,0 +1,52 @@
+package com.nicolaslopez82.sms.web;
+
+/**
+ * Data Transfer Object with the hits and misses of a second-level cache region.
+ */
+public class CacheStatisticsDto {
+
+    private String region;
+
+    private long hits;
+
+    private long misses;
+
+    private long puts;
+
+    /**
+     * Constructor to fully initialize the CacheStatisticsDto
+     *
+     * @param region cache region name
+     * @param hits number of lookups found in the region
+     * @param misses number of lookups not found in the region
+     * @param puts number of entries put in the region
+     */
+    public CacheStatisticsDto(String region, long hits, long misses, long puts) {
+        this.region = region;
+        this.hits = hits;
+        this.misses = misses;
+        this.puts = puts;
+    }
+
+    protected CacheStatisticsDto() {}
+
+    public String getRegion() {
+        return region;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public long getPuts() {
+        return puts;
+    }
+
+    public double getHitRatio() {
+        return hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+    }
+}
@@ -0,0 +1,100 @@
+package com.nicolaslopez82.sms.web;
+
+import com.nicolaslopez82.sms.service.TourSearchIndex;
+import com.nicolaslopez82.sms.service.TourVersions;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.PathMatcher;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.UrlPathHelper;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Conditional GETs of the catalog (/packages and /tours of Spring Data REST) and of the ratings of a tour
+ * (GET /tours/{tourId}/ratings and /average), validated against the in memory TourVersions.
+ *
+ * The ratings get a strong ETag of the ratings version of the tour, the catalog an ETag of the catalog version
+ * and its Last-Modified time. A request whose If-None-Match (or, without it, If-Modified-Since) still matches
+ * is answered 304 Not Modified here, before any controller or repository runs; the others go on with the
+ * validators already set. The tag is read before the response is, so a response is never older than its tag.
+ * The ratings of a tour missing from the TourSearchIndex are passed on unvalidated, to be answered 404.
+ *
+ * Each kind of response gets its own Cache-Control (com.nicolaslopez82.sms.http.cache-control.*), an empty
+ * value leaves the no-store default of Spring Security.
+ *
+ * @author nicolaslopez
+ */
+@Component
+public class ConditionalGetFilter extends OncePerRequestFilter {
+
+    private static final String TOUR_RATINGS = "/tours/{tourId:\\d{1,9}}/ratings";
+    private static final String TOUR_AVERAGE = "/tours/{tourId:\\d{1,9}}/ratings/average";
+    private static final List<String> CATALOG = Arrays.asList("/packages", "/packages/**",
+            "/tours", "/tours/{tourId:\\d+}", "/tours/{tourId:\\d+}/tourPackage");
+
+    private final PathMatcher pathMatcher = new AntPathMatcher();
+    private final UrlPathHelper urlPathHelper = new UrlPathHelper();
+    private TourVersions tourVersions;
+    private TourSearchIndex tourSearchIndex;
+    private String catalogCacheControl;
+    private String ratingsCacheControl;
+    private String averageCacheControl;
+
+    @Autowired
+    public ConditionalGetFilter(TourVersions tourVersions, TourSearchIndex tourSearchIndex,
+                                @Value("${com.nicolaslopez82.sms.http.cache-control.catalog:max-age=60}") String catalogCacheControl,
+                                @Value("${com.nicolaslopez82.sms.http.cache-control.ratings:no-cache}") String ratingsCacheControl,
+                                @Value("${com.nicolaslopez82.sms.http.cache-control.average:no-cache}") String averageCacheControl) {
+        this.tourVersions = tourVersions;
+        this.tourSearchIndex = tourSearchIndex;
+        this.catalogCacheControl = catalogCacheControl;
+        this.ratingsCacheControl = ratingsCacheControl;
+        this.averageCacheControl = averageCacheControl;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !"GET".equals(request.getMethod()) && !"HEAD".equals(request.getMethod());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String path = urlPathHelper.getPathWithinApplication(request);
+        ServletWebRequest webRequest = new ServletWebRequest(request, response);
+        boolean average = pathMatcher.match(TOUR_AVERAGE, path);
+        if (average || pathMatcher.match(TOUR_RATINGS, path)) {
+            int tourId = Integer.parseInt(pathMatcher.extractUriTemplateVariables(
+                    average ? TOUR_AVERAGE : TOUR_RATINGS, path).get("tourId"));
+            if (tourSearchIndex.find(tourId).isPresent()) {
+                cacheControl(response, average ? averageCacheControl : ratingsCacheControl);
+                if (webRequest.checkNotModified(tourVersions.ratingsTag(tourId))) {
+                    return;
+                }
+            }
+        } else if (CATALOG.stream().anyMatch(pattern -> pathMatcher.match(pattern, path))) {
+            cacheControl(response, catalogCacheControl);
+            if (webRequest.checkNotModified(tourVersions.catalogTag(), tourVersions.getCatalogLastModified())) {
+                return;
+            }
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    private static void cacheControl(HttpServletResponse response, String cacheControl) {
+        if (!cacheControl.isEmpty()) {
+            response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+        }
+    }
+}
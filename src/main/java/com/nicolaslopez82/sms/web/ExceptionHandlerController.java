@@ -1,5 +1,6 @@
 package com.nicolaslopez82.sms.web;
 
+import com.nicolaslopez82.sms.security.PasswordEncoderBusyException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.web.servlet.error.DefaultErrorAttributes;
@@ -53,6 +54,12 @@ public class ExceptionHandlerController {
         res.sendError(ex.getStatusCode().value(),ex.getMessage());
     }
 
+    @ExceptionHandler(PasswordEncoderBusyException.class)
+    public void handlePasswordEncoderBusyException(PasswordEncoderBusyException ex, HttpServletResponse res) throws IOException {
+        res.setHeader("Retry-After", "1");
+        res.sendError(HttpStatus.TOO_MANY_REQUESTS.value(), "Too many logins in progress");
+    }
+
     @ExceptionHandler(InsufficientAuthenticationException.class)
     public void handleInsufficientAuthenticationException(Exception ex, HttpServletResponse res) throws IOException {
         LOGGER.error("Handled Insufficient Authentication Exception", ex);
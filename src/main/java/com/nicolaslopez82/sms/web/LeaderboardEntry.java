@@ -0,0 +1,78 @@
+package com.nicolaslopez82.sms.web;
+
+import com.nicolaslopez82.sms.domain.Tour;
+
+/**
+ * Data Transfer Object of a Tour in the ratings leaderboard.
+ */
+public class LeaderboardEntry {
+
+    private int rank;
+
+    private Integer tourId;
+
+    private String title;
+
+    private String region;
+
+    private String difficulty;
+
+    private String tourPackage;
+
+    private double average;
+
+    private long count;
+
+    /**
+     * Constructor to fully initialize the LeaderboardEntry
+     *
+     * @param rank position in the leaderboard, starting at 1
+     * @param tour ranked tour
+     * @param average average score of the tour
+     * @param count number of ratings of the tour
+     */
+    public LeaderboardEntry(int rank, Tour tour, double average, long count) {
+        this.rank = rank;
+        this.tourId = tour.getId();
+        this.title = tour.getTitle();
+        this.region = tour.getRegion() == null ? null : tour.getRegion().getLabel();
+        this.difficulty = tour.getDifficulty() == null ? null : tour.getDifficulty().name();
+        this.tourPackage = tour.getTourPackage() == null ? null : tour.getTourPackage().getCode();
+        this.average = average;
+        this.count = count;
+    }
+
+    protected LeaderboardEntry() {}
+
+    public int getRank() {
+        return rank;
+    }
+
+    public Integer getTourId() {
+        return tourId;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getRegion() {
+        return region;
+    }
+
+    public String getDifficulty() {
+        return difficulty;
+    }
+
+    public String getTourPackage() {
+        return tourPackage;
+    }
+
+    public double getAverage() {
+        return average;
+    }
+
+    public long getCount() {
+        return count;
+    }
+}
@@ -0,0 +1,71 @@
+package com.nicolaslopez82.sms.web;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Data Transfer Object for a page of Tour Ratings fetched with an opaque cursor instead of an offset.
+ */
+public class RatingCursorPage {
+
+    private static final String PREFIX = "id:";
+
+    private List<RatingDto> content;
+
+    private String next;
+
+    private Long total;
+
+    /**
+     * Constructor to fully initialize the RatingCursorPage
+     *
+     * @param content ratings of the page
+     * @param next cursor of the next page, null if this is the last page
+     * @param total total number of ratings of the tour, null if not requested
+     */
+    public RatingCursorPage(List<RatingDto> content, String next, Long total) {
+        this.content = content;
+        this.next = next;
+        this.total = total;
+    }
+
+    protected RatingCursorPage() {}
+
+    /**
+     * Encode the identifier of the last rating of a page into an opaque cursor.
+     *
+     * @param id rating identifier
+     * @return cursor
+     */
+    public static String encodeCursor(int id) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString((PREFIX + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decode an opaque cursor into the identifier of the last rating of the previous page.
+     *
+     * @param cursor cursor
+     * @return rating identifier
+     * @throws IllegalArgumentException if the cursor is not valid
+     */
+    public static int decodeCursor(String cursor) throws IllegalArgumentException {
+        String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        if (!decoded.startsWith(PREFIX)) {
+            throw new IllegalArgumentException("Invalid cursor " + cursor);
+        }
+        return Integer.parseInt(decoded.substring(PREFIX.length()));
+    }
+
+    public List<RatingDto> getContent() {
+        return content;
+    }
+
+    public String getNext() {
+        return next;
+    }
+
+    public Long getTotal() {
+        return total;
+    }
+}
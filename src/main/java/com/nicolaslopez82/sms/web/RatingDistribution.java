@@ -0,0 +1,67 @@
+package com.nicolaslopez82.sms.web;
+
+import java.util.Map;
+
+/**
+ * Data Transfer Object of the distribution of the scores of a Tour.
+ */
+public class RatingDistribution {
+
+    private Integer tourId;
+
+    private long count;
+
+    private Double average;
+
+    private Double standardDeviation;
+
+    private long[] histogram;
+
+    private Map<String, Integer> percentiles;
+
+    /**
+     * Constructor to fully initialize the RatingDistribution
+     *
+     * @param tourId tour identifier
+     * @param count number of ratings of the tour
+     * @param average average score, null if the tour has no ratings
+     * @param standardDeviation population standard deviation of the scores, null if the tour has no ratings
+     * @param histogram number of ratings per score, indexed by score (0-5)
+     * @param percentiles score of each percentile (p25, p50, ...), empty if the tour has no ratings
+     */
+    public RatingDistribution(Integer tourId, long count, Double average, Double standardDeviation,
+                              long[] histogram, Map<String, Integer> percentiles) {
+        this.tourId = tourId;
+        this.count = count;
+        this.average = average;
+        this.standardDeviation = standardDeviation;
+        this.histogram = histogram;
+        this.percentiles = percentiles;
+    }
+
+    protected RatingDistribution() {}
+
+    public Integer getTourId() {
+        return tourId;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public Double getAverage() {
+        return average;
+    }
+
+    public Double getStandardDeviation() {
+        return standardDeviation;
+    }
+
+    public long[] getHistogram() {
+        return histogram;
+    }
+
+    public Map<String, Integer> getPercentiles() {
+        return percentiles;
+    }
+}
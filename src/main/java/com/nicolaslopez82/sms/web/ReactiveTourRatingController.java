@@ -0,0 +1,122 @@
+package com.nicolaslopez82.sms.web;
+
+import com.nicolaslopez82.sms.domain.Tour;
+import com.nicolaslopez82.sms.repository.ReactiveTourRatingRepository;
+import com.nicolaslopez82.sms.service.TourRatingAggregates;
+import com.nicolaslopez82.sms.service.TourSearchIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Non-blocking variant of the Tour Rating read operations, under /rx and authenticated with a JWT
+ * like every request outside the public paths.
+ *
+ * The ratings are read through R2DBC and the tours are verified against the in memory TourSearchIndex,
+ * so no request thread waits for the database: Spring MVC completes the response asynchronously when
+ * the Flux or Mono terminates. The listing is collected into a JSON array, unless the client accepts
+ * application/stream+json: then every rating is written and flushed as soon as it is read, and the next
+ * one is requested once it is written, so a slow client holds back the database cursor.
+ *
+ * @author nicolaslopez
+ */
+@RestController
+@RequestMapping(path = "/rx/tours/{tourId}/ratings")
+public class ReactiveTourRatingController {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReactiveTourRatingController.class);
+    private ReactiveTourRatingRepository reactiveTourRatingRepository;
+    private TourSearchIndex tourSearchIndex;
+    private TourRatingAggregates tourRatingAggregates;
+
+    @Autowired
+    public ReactiveTourRatingController(ReactiveTourRatingRepository reactiveTourRatingRepository,
+                                        TourSearchIndex tourSearchIndex, TourRatingAggregates tourRatingAggregates) {
+        this.reactiveTourRatingRepository = reactiveTourRatingRepository;
+        this.tourSearchIndex = tourSearchIndex;
+        this.tourRatingAggregates = tourRatingAggregates;
+    }
+
+    /**
+     * Lookup the Ratings for a tour.
+     *
+     * @param tourId Tour Identifier
+     * @return All Tour Ratings as RatingDto's
+     */
+    @GetMapping
+    public Flux<RatingDto> getRatings(@PathVariable(value = "tourId") int tourId) {
+        LOGGER.debug("GET /rx/tours/{}/ratings", tourId);
+        return verifyTour(tourId)
+                .flatMapMany(tour -> reactiveTourRatingRepository.findRatingsByTourId(tour.getId()));
+    }
+
+    /**
+     * Calculate the average Score of a Tour.
+     *
+     * @param tourId tour identifier
+     * @return Tuple of "average" and the average value.
+     */
+    @GetMapping(path = "/average")
+    public Mono<Map<String, Double>> getAverage(@PathVariable(value = "tourId") int tourId) {
+        LOGGER.debug("GET /rx/tours/{}/ratings/average", tourId);
+        return verifyTour(tourId).map(tour -> {
+            double average = tourRatingAggregates.get(tour.getId()).getAverage()
+                    .orElseThrow(() -> new NoSuchElementException("Tour has no Ratings"));
+            return Collections.singletonMap("average", average);
+        });
+    }
+
+    /**
+     * Verify and return the Rating of a tour by a customer.
+     *
+     * @param tourId tour identifier
+     * @param customerId customer identifier
+     * @return the found Rating as RatingDto
+     */
+    @GetMapping(path = "/{customerId}")
+    public Mono<RatingDto> getRating(@PathVariable(value = "tourId") int tourId,
+                                     @PathVariable(value = "customerId") int customerId) {
+        LOGGER.debug("GET /rx/tours/{}/ratings/{}", tourId, customerId);
+        return verifyTour(tourId)
+                .flatMap(tour -> reactiveTourRatingRepository.findRating(tour.getId(), customerId))
+                .switchIfEmpty(Mono.error(() -> new NoSuchElementException(
+                        "Tour-Rating pair for request(" + tourId + " for customer " + customerId)));
+    }
+
+    /**
+     * Verify and return the Tour given a tourId, NoSuchElementException (404) if not found.
+     *
+     * @param tourId tour identifier
+     * @return the found Tour
+     */
+    private Mono<Tour> verifyTour(int tourId) {
+        return Mono.justOrEmpty(tourSearchIndex.find(tourId))
+                .switchIfEmpty(Mono.error(() -> new NoSuchElementException("Tour does not exist " + tourId)));
+    }
+
+    /**
+     * Exception handler if NoSuchElementException is thrown in this Controller
+     *
+     * @param ex exception
+     * @return Error message String.
+     */
+    @ResponseStatus(HttpStatus.NOT_FOUND)
+    @ExceptionHandler(NoSuchElementException.class)
+    public String return404(NoSuchElementException ex) {
+        LOGGER.debug("Not found: {}", ex.getMessage());
+        return ex.getMessage();
+    }
+}
@@ -0,0 +1,71 @@
+package com.nicolaslopez82.sms.web;
+
+import com.nicolaslopez82.sms.domain.Difficulty;
+import com.nicolaslopez82.sms.domain.Region;
+import com.nicolaslopez82.sms.service.TourRatingService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.client.HttpServerErrorException;
+
+import java.util.List;
+
+/**
+ * Best rated Tours, overall or per Region, Difficulty and TourPackage.
+ *
+ * @author nicolaslopez
+ */
+@RestController
+@RequestMapping(path = "/tours/leaderboard")
+public class TourLeaderboardController {
+
+    private static final int MAX_LIMIT = 100;
+    private TourRatingService tourRatingService;
+
+    @Autowired
+    public TourLeaderboardController(TourRatingService tourRatingService) {
+        this.tourRatingService = tourRatingService;
+    }
+
+    /**
+     * Get the best rated Tours, every filter is optional.
+     *
+     * @param region only tours of this region (name or label)
+     * @param difficulty only tours of this difficulty
+     * @param tourPackage only tours of this tour package code
+     * @param minRatings only tours with at least this number of ratings
+     * @param limit maximum number of tours
+     * @return the tours by descending average score, then descending number of ratings
+     */
+    @GetMapping
+    @ResponseStatus(HttpStatus.OK)
+    public List<LeaderboardEntry> getLeaderboard(@RequestParam(value = "region", required = false) String region,
+                                                 @RequestParam(value = "difficulty", required = false) Difficulty difficulty,
+                                                 @RequestParam(value = "package", required = false) String tourPackage,
+                                                 @RequestParam(value = "minRatings", defaultValue = "1") long minRatings,
+                                                 @RequestParam(value = "limit", defaultValue = "10") int limit) {
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new HttpServerErrorException(HttpStatus.BAD_REQUEST, "limit must be between 1 and " + MAX_LIMIT);
+        }
+        return tourRatingService.getLeaderboard(toRegion(region), difficulty, tourPackage, minRatings, limit);
+    }
+
+    private static Region toRegion(String region) {
+        if (region == null) {
+            return null;
+        }
+        Region byLabel = Region.findByLabel(region);
+        if (byLabel != null) {
+            return byLabel;
+        }
+        try {
+            return Region.valueOf(region);
+        } catch (IllegalArgumentException e) {
+            throw new HttpServerErrorException(HttpStatus.BAD_REQUEST, "Unknown region " + region);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.nicolaslopez82.sms.web;
+
+import com.nicolaslopez82.sms.domain.TourPackage;
+import com.nicolaslopez82.sms.service.TourPackageService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.client.HttpServerErrorException;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk operations on the Tour Packages, the reads are exposed by Spring Data REST under /packages.
+ *
+ * @author nicolaslopez
+ */
+@RestController
+public class TourPackageController {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TourPackageController.class);
+    private static final int MAX_PACKAGES = 1000;
+    private TourPackageService tourPackageService;
+    private Validator validator;
+
+    @Autowired
+    public TourPackageController(TourPackageService tourPackageService, Validator validator) {
+        this.tourPackageService = tourPackageService;
+        this.validator = validator;
+    }
+
+    /**
+     * Create the Tour Packages whose code does not exist yet, leaving the others unchanged.
+     *
+     * @param tourPackages codes and names of the packages
+     * @return number of created and unchanged packages
+     */
+    @PostMapping("/packages:bulk")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    public BulkPackageResult createTourPackages(@RequestBody List<TourPackageDto> tourPackages) {
+        LOGGER.debug("POST /packages:bulk of {} packages", tourPackages.size());
+        if (tourPackages.size() > MAX_PACKAGES) {
+            throw new HttpServerErrorException(HttpStatus.BAD_REQUEST, "At most " + MAX_PACKAGES + " packages");
+        }
+        for (TourPackageDto tourPackage : tourPackages) {
+            if (tourPackage == null) {
+                throw new HttpServerErrorException(HttpStatus.BAD_REQUEST, "Missing package");
+            }
+            Set<ConstraintViolation<TourPackageDto>> violations = validator.validate(tourPackage);
+            if (!violations.isEmpty()) {
+                throw new HttpServerErrorException(HttpStatus.BAD_REQUEST, violations.stream()
+                        .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                        .collect(Collectors.joining(", ")));
+            }
+        }
+        return tourPackageService.createTourPackages(tourPackages.stream()
+                .map(tourPackage -> new TourPackage(tourPackage.getCode(), tourPackage.getName()))
+                .collect(Collectors.toList()));
+    }
+}
@@ -0,0 +1,39 @@
+package com.nicolaslopez82.sms.web;
+
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.Size;
+
+/**
+ * Data Transfer Object for creating a Tour Package.
+ */
+public class TourPackageDto {
+
+    @NotBlank
+    @Size(max = 2)
+    private String code;
+
+    @NotBlank
+    @Size(max = 50)
+    private String name;
+
+    /**
+     * Constructor to fully initialize the TourPackageDto
+     *
+     * @param code code of the package
+     * @param name name of the package
+     */
+    public TourPackageDto(String code, String name) {
+        this.code = code;
+        this.name = name;
+    }
+
+    protected TourPackageDto() {}
+
+    public String getCode() {
+        return code;
+    }
+
+    public String getName() {
+        return name;
+    }
+}
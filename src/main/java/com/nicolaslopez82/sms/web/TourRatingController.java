@@ -1,24 +1,45 @@
 package com.nicolaslopez82.sms.web;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import com.nicolaslopez82.sms.domain.Tour;
 import com.nicolaslopez82.sms.domain.TourRating;
+import com.nicolaslopez82.sms.service.RatingQueueFullException;
+import com.nicolaslopez82.sms.service.RatingResponseCache;
+import com.nicolaslopez82.sms.service.RatingWriteBehindQueue;
 import com.nicolaslopez82.sms.service.TourRatingService;
+import com.nicolaslopez82.sms.service.TourVersions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.client.HttpServerErrorException;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
-import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.function.Supplier;
 
 /**
  * Tour Rating Controller
+ *
+ * When the RatingWriteBehindQueue is enabled, the ratings are created, updated and deleted through it
+ * and the responses are 202 Accepted instead of 201 Created, 200 OK and 204 No Content.
  */
 @RestController
 @RestControllerAdvice
@@ -26,11 +47,23 @@ import java.util.NoSuchElementException;
 public class TourRatingController {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(TourRatingController.class);
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final String NDJSON = "application/x-ndjson";
     private TourRatingService tourRatingService;
+    private ObjectMapper objectMapper;
+    private ObjectProvider<RatingWriteBehindQueue> writeBehindQueue;
+    private RatingResponseCache ratingResponseCache;
+    private TourVersions tourVersions;
 
     @Autowired
-    public TourRatingController(TourRatingService tourRatingService) {
+    public TourRatingController(TourRatingService tourRatingService, ObjectMapper objectMapper,
+                                ObjectProvider<RatingWriteBehindQueue> writeBehindQueue,
+                                RatingResponseCache ratingResponseCache, TourVersions tourVersions) {
         this.tourRatingService = tourRatingService;
+        this.objectMapper = objectMapper;
+        this.writeBehindQueue = writeBehindQueue;
+        this.ratingResponseCache = ratingResponseCache;
+        this.tourVersions = tourVersions;
     }
 
     protected TourRatingController() {}
@@ -43,12 +76,18 @@ public class TourRatingController {
      */
     @PostMapping
     @PreAuthorize("hasRole('ROLE_CSR')")
-    @ResponseStatus(HttpStatus.CREATED)
-    public void createTourRating(@PathVariable(value = "tourId") int tourId,
-                                 @RequestBody @Validated RatingDto ratingDto){
-        LOGGER.info("POST /tours/{}/ratings", tourId);
+    public ResponseEntity<Void> createTourRating(@PathVariable(value = "tourId") int tourId,
+                                                 @RequestBody @Validated RatingDto ratingDto){
+        LOGGER.debug("POST /tours/{}/ratings", tourId);
         Tour tour = verifyTour(tourId);
+        RatingWriteBehindQueue queue = writeBehindQueue.getIfAvailable();
+        if (queue != null) {
+            verifyScore(ratingDto);
+            queue.submit(tour.getId(), ratingDto, true);
+            return ResponseEntity.accepted().build();
+        }
         tourRatingService.createTourRating(tour, ratingDto);
+        return ResponseEntity.status(HttpStatus.CREATED).build();
     }
 
     /**
@@ -57,15 +96,16 @@ public class TourRatingController {
      * @param tourId
      * @param score
      * @param customers
+     * @return number of created ratings and the customers skipped because they already rated the tour
      */
     @PostMapping("/{score}")
     @PreAuthorize("hasRole('ROLE_CSR')")
     @ResponseStatus(HttpStatus.CREATED)
-    public void createManyTourRatings(@PathVariable(value = "tourId") int tourId,
-                                      @PathVariable(value = "score") int score,
-                                      @RequestParam("customers") Integer customers[]) {
-        LOGGER.info("POST /tours/{}/ratings/{}", tourId, score);
-                tourRatingService.rateMany(tourId, score, customers);
+    public BulkRatingResult createManyTourRatings(@PathVariable(value = "tourId") int tourId,
+                                                  @PathVariable(value = "score") int score,
+                                                  @RequestParam("customers") Integer customers[]) {
+        LOGGER.debug("POST /tours/{}/ratings/{}", tourId, score);
+        return tourRatingService.rateMany(tourId, score, customers);
     }
 
     /**
@@ -77,37 +117,119 @@ public class TourRatingController {
     @GetMapping(path = "/ratings/tour")
     @ResponseStatus(HttpStatus.OK)
     public List<RatingDto> getAllRatingsForTour(@PathVariable(value = "tourId") int tourId){
-        LOGGER.info("GET /ratings/tour", tourId);
+        LOGGER.debug("GET /ratings/tour", tourId);
         Tour tour = verifyTour(tourId);
         return tourRatingService.getAllRatingsForTour(tour);
     }
 
     /**
-     * Lookup a page of Ratings for a tour.
+     * Export all the Ratings of a tour as newline delimited JSON, written to the response
+     * while they are read from the database.
+     *
+     * @param tourId Tour Identifier
+     * @param response HTTP response
+     * @throws IOException if the response can not be written
+     */
+    @GetMapping(path = "/export", produces = NDJSON)
+    public void exportRatings(@PathVariable(value = "tourId") int tourId, HttpServletResponse response)
+            throws IOException {
+        LOGGER.debug("GET /tours/{}/ratings/export", tourId);
+        Tour tour = verifyTour(tourId);
+        response.setContentType(NDJSON);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        ObjectWriter writer = objectMapper.writerFor(RatingDto.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream())) {
+            tourRatingService.forEachRatingOfTour(tour, ratingDto -> {
+                try {
+                    writer.writeValue(generator, ratingDto);
+                    generator.writeRaw('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+
+    /**
+     * Lookup a page of Ratings for a tour, written as JSON to the response; the first page
+     * is served from the RatingResponseCache.
      *
      * @param tourId Tour Identifier
      * @param pageable paging details
-     * @return Requested page of Tour Ratings as RatingDto's
+     * @param response HTTP response, the requested page of Tour Ratings as RatingDto's
+     * @throws IOException if the response can not be written
      */
     @GetMapping
+    public void getRatings(@PathVariable(value = "tourId") int tourId, Pageable pageable,
+                           HttpServletResponse response) throws IOException {
+        Tour tour = verifyTour(tourId);
+        if (pageable.getPageNumber() != 0) {
+            writeJson(response, ByteBuffer.wrap(objectMapper.writeValueAsBytes(tourRatingService.getRatings(tour, pageable))));
+            return;
+        }
+        writeCached(response, tour.getId(), "ratings?size=" + pageable.getPageSize() + "&sort=" + pageable.getSort(),
+                () -> tourRatingService.getRatings(tour, pageable));
+    }
+
+    /**
+     * Lookup a page of Ratings for a tour following an opaque cursor (keyset pagination).
+     *
+     * @param tourId Tour Identifier
+     * @param after cursor returned as "next" by the previous page, absent for the first page
+     * @param size page size
+     * @param total true to include the total number of ratings of the tour
+     * @return Requested page of Tour Ratings as RatingDto's and the cursor of the next page
+     */
+    @GetMapping(path = "/cursor")
     @ResponseStatus(HttpStatus.OK)
-    public Page<RatingDto> getRatings(@PathVariable(value = "tourId") int tourId, Pageable pageable){
+    public RatingCursorPage getRatingsAfter(@PathVariable(value = "tourId") int tourId,
+                                            @RequestParam(value = "after", required = false) String after,
+                                            @RequestParam(value = "size", defaultValue = "20") int size,
+                                            @RequestParam(value = "total", defaultValue = "false") boolean total) {
+        LOGGER.debug("GET /tours/{}/ratings/cursor", tourId);
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new HttpServerErrorException(HttpStatus.BAD_REQUEST, "size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        Integer afterId = null;
+        if (after != null) {
+            try {
+                afterId = RatingCursorPage.decodeCursor(after);
+            } catch (IllegalArgumentException e) {
+                throw new HttpServerErrorException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+            }
+        }
         Tour tour = verifyTour(tourId);
-        return tourRatingService.getRatings(tour, pageable);
+        return tourRatingService.getRatingsAfter(tour, afterId, size, total);
     }
 
     /**
-     * Calculate the average Score of a Tour.
+     * Calculate the average Score of a Tour, written as JSON to the response from the RatingResponseCache.
      *
      * @param tourId tour identifier
-     * @return Tuple of "average" and the average value.
+     * @param response HTTP response, tuple of "average" and the average value.
+     * @throws IOException if the response can not be written
      */
     @GetMapping(path = "/average")
+    public void getAverage(@PathVariable(value = "tourId") int tourId, HttpServletResponse response)
+            throws IOException {
+        LOGGER.debug("GET /tours/{}/ratings/average", tourId);
+        Tour tour = verifyTour(tourId);
+        writeCached(response, tour.getId(), "average", () -> tourRatingService.getAverage(tour));
+    }
+
+    /**
+     * Get the distribution of the Scores of a Tour.
+     *
+     * @param tourId tour identifier
+     * @return count, average, standard deviation, number of ratings per score and percentiles
+     */
+    @GetMapping(path = "/distribution")
     @ResponseStatus(HttpStatus.OK)
-    public Map<String, Double> getAverage(@PathVariable(value = "tourId") int tourId){
-        LOGGER.info("GET /tours/{}/ratings/average", tourId);
+    public RatingDistribution getDistribution(@PathVariable(value = "tourId") int tourId) {
+        LOGGER.debug("GET /tours/{}/ratings/distribution", tourId);
         Tour tour = verifyTour(tourId);
-        return tourRatingService.getAverage(tour);
+        return tourRatingService.getDistribution(tour);
     }
 
     /**
@@ -132,11 +254,17 @@ public class TourRatingController {
      */
     @PutMapping
     @PreAuthorize("hasRole('ROLE_CSR')")
-    @ResponseStatus(HttpStatus.OK)
-    public RatingDto update(@PathVariable(value = "tourId") int tourId, @RequestBody @Validated RatingDto ratingDto) {
-        LOGGER.info("PUT /tours/{}/ratings", tourId);
+    public ResponseEntity<RatingDto> update(@PathVariable(value = "tourId") int tourId,
+                                            @RequestBody @Validated RatingDto ratingDto) {
+        LOGGER.debug("PUT /tours/{}/ratings", tourId);
+        RatingWriteBehindQueue queue = writeBehindQueue.getIfAvailable();
+        if (queue != null) {
+            verifyScore(ratingDto);
+            verifyPendingTourRating(queue, tourId, ratingDto.getCustomerId());
+            return ResponseEntity.accepted().body(queue.submit(tourId, ratingDto, true));
+        }
         TourRating rating = verifyTourRating(tourId, ratingDto.getCustomerId());
-        return tourRatingService.update(rating, ratingDto);
+        return ResponseEntity.ok(tourRatingService.update(rating, ratingDto));
     }
 
     /**
@@ -148,11 +276,16 @@ public class TourRatingController {
      */
     @PatchMapping
     @PreAuthorize("hasRole('ROLE_CSR')")
-    @ResponseStatus(HttpStatus.OK)
-    public RatingDto updateWithPatch(@PathVariable(value = "tourId") int tourId, @RequestBody @Validated RatingDto ratingDto) {
-        LOGGER.info("PATCH /tours/{}/ratings", tourId);
+    public ResponseEntity<RatingDto> updateWithPatch(@PathVariable(value = "tourId") int tourId,
+                                                     @RequestBody @Validated RatingDto ratingDto) {
+        LOGGER.debug("PATCH /tours/{}/ratings", tourId);
+        RatingWriteBehindQueue queue = writeBehindQueue.getIfAvailable();
+        if (queue != null) {
+            verifyPendingTourRating(queue, tourId, ratingDto.getCustomerId());
+            return ResponseEntity.accepted().body(queue.submit(tourId, ratingDto, false));
+        }
         TourRating rating = verifyTourRating(tourId, ratingDto.getCustomerId());
-        return tourRatingService.updateWithPatch(rating, ratingDto);
+        return ResponseEntity.ok(tourRatingService.updateWithPatch(rating, ratingDto));
     }
 
     /**
@@ -163,11 +296,45 @@ public class TourRatingController {
      */
     @DeleteMapping(path = "/{customerId}")
     @PreAuthorize("hasRole('ROLE_CSR')")
-    @ResponseStatus(HttpStatus.NO_CONTENT)
-    public void delete(@PathVariable(value = "tourId") int tourId, @PathVariable(value = "customerId") int customerId) {
-        LOGGER.info("DELETE /tours/{}/ratings/{}", tourId, customerId);
+    public ResponseEntity<Void> delete(@PathVariable(value = "tourId") int tourId,
+                                       @PathVariable(value = "customerId") int customerId) {
+        LOGGER.debug("DELETE /tours/{}/ratings/{}", tourId, customerId);
+        RatingWriteBehindQueue queue = writeBehindQueue.getIfAvailable();
+        if (queue != null) {
+            verifyPendingTourRating(queue, tourId, customerId);
+            queue.submitDelete(tourId, customerId);
+            return ResponseEntity.accepted().build();
+        }
         TourRating rating = verifyTourRating(tourId, customerId);
         tourRatingService.delete(rating, customerId);
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * Verify that a rating written behind has a score, so it can not be rejected once accepted.
+     *
+     * @param ratingDto rating Data Transfer Object
+     */
+    private void verifyScore(RatingDto ratingDto) {
+        if (ratingDto.getScore() == null) {
+            throw new HttpServerErrorException(HttpStatus.BAD_REQUEST, "score is required");
+        }
+    }
+
+    /**
+     * Verify that a customer rated a tour, including the ratings not yet written by the write-behind queue.
+     *
+     * @param queue write-behind queue
+     * @param tourId tour identifier
+     * @param customerId customer identifier
+     * @throws NoSuchElementException if no Tour or TourRating found
+     */
+    private void verifyPendingTourRating(RatingWriteBehindQueue queue, int tourId, int customerId)
+            throws NoSuchElementException {
+        verifyTour(tourId);
+        if (!queue.isRated(tourId, customerId)) {
+            throw new NoSuchElementException("Tour-Rating pair for request(" + tourId + " for customer " + customerId);
+        }
     }
 
     /**
@@ -182,6 +349,29 @@ public class TourRatingController {
         return tourRatingService.verifyTour(tourId);
     }
 
+    /**
+     * Write the cached JSON of a response of a tour, or serialize its body and cache it
+     * with the ratings version read before the body.
+     */
+    private void writeCached(HttpServletResponse response, int tourId, String variant, Supplier<Object> body)
+            throws IOException {
+        Optional<ByteBuffer> cached = ratingResponseCache.get(tourId, variant);
+        if (cached.isPresent()) {
+            writeJson(response, cached.get());
+            return;
+        }
+        long version = tourVersions.ratingsVersion(tourId);
+        byte[] json = objectMapper.writeValueAsBytes(body.get());
+        ratingResponseCache.put(tourId, version, variant, json);
+        writeJson(response, ByteBuffer.wrap(json));
+    }
+
+    private static void writeJson(HttpServletResponse response, ByteBuffer json) throws IOException {
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(json.remaining());
+        Channels.newChannel(response.getOutputStream()).write(json);
+    }
+
     /**
      * Exception handler if NoSuchElementException is thrown in this Controller
      *
@@ -195,4 +385,17 @@ public class TourRatingController {
         LOGGER.error("Unable to complete transaction", ex);
         return ex.getMessage();
     }
+
+    /**
+     * Exception handler if the write-behind queue has no room for a rating
+     *
+     * @param ex exception
+     * @return Error message String.
+     */
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    @ExceptionHandler(RatingQueueFullException.class)
+    public String return503(RatingQueueFullException ex) {
+        LOGGER.warn("Rating not accepted: {}", ex.getMessage());
+        return ex.getMessage();
+    }
 }
@@ -0,0 +1,76 @@
+package com.nicolaslopez82.sms.web;
+
+import com.nicolaslopez82.sms.domain.Difficulty;
+import com.nicolaslopez82.sms.domain.Region;
+import com.nicolaslopez82.sms.service.TourSearchIndex;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.client.HttpServerErrorException;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Faceted search over the in memory TourSearchIndex.
+ *
+ * @author nicolaslopez
+ */
+@RestController
+@RequestMapping(path = "/tours/search")
+public class TourSearchController {
+
+    private TourSearchIndex tourSearchIndex;
+
+    @Autowired
+    public TourSearchController(TourSearchIndex tourSearchIndex) {
+        this.tourSearchIndex = tourSearchIndex;
+    }
+
+    /**
+     * Search Tours, every criteria is optional.
+     *
+     * @param text words that must all appear in the title, keywords or bullets
+     * @param regions any of these regions (name or label)
+     * @param difficulties any of these difficulties
+     * @param packages any of these tour package codes
+     * @param minPrice minimum price
+     * @param maxPrice maximum price
+     * @param limit maximum number of tours returned
+     * @return the matching tours with the facet counts of all the matches
+     */
+    @GetMapping
+    @ResponseStatus(HttpStatus.OK)
+    public TourSearchResult search(@RequestParam(value = "q", required = false) String text,
+                                   @RequestParam(value = "region", required = false) List<String> regions,
+                                   @RequestParam(value = "difficulty", required = false) List<Difficulty> difficulties,
+                                   @RequestParam(value = "package", required = false) List<String> packages,
+                                   @RequestParam(value = "minPrice", required = false) Integer minPrice,
+                                   @RequestParam(value = "maxPrice", required = false) Integer maxPrice,
+                                   @RequestParam(value = "limit", defaultValue = "20") int limit) {
+        return tourSearchIndex.search(text, toRegions(regions), difficulties, packages, minPrice, maxPrice, limit);
+    }
+
+    private static List<Region> toRegions(List<String> regions) {
+        if (regions == null) {
+            return null;
+        }
+        return regions.stream().map(TourSearchController::toRegion).collect(Collectors.toList());
+    }
+
+    private static Region toRegion(String region) {
+        Region byLabel = Region.findByLabel(region);
+        if (byLabel != null) {
+            return byLabel;
+        }
+        try {
+            return Region.valueOf(region);
+        } catch (IllegalArgumentException e) {
+            throw new HttpServerErrorException(HttpStatus.BAD_REQUEST, "Unknown region " + region);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.nicolaslopez82.sms.web;
+
+import com.nicolaslopez82.sms.domain.Tour;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Data Transfer Object with the Tours matching a search and the facet counts of all the matches.
+ */
+public class TourSearchResult {
+
+    private int total;
+
+    private List<Tour> tours;
+
+    private Map<String, Map<String, Integer>> facets;
+
+    /**
+     * Constructor to fully initialize the TourSearchResult
+     *
+     * @param total number of matching tours
+     * @param tours the first matching tours
+     * @param facets number of matching tours per region, difficulty and tour package
+     */
+    public TourSearchResult(int total, List<Tour> tours, Map<String, Map<String, Integer>> facets) {
+        this.total = total;
+        this.tours = tours;
+        this.facets = facets;
+    }
+
+    protected TourSearchResult() {}
+
+    public int getTotal() {
+        return total;
+    }
+
+    public List<Tour> getTours() {
+        return tours;
+    }
+
+    public Map<String, Map<String, Integer>> getFacets() {
+        return facets;
+    }
+}
@@ -1,6 +1,7 @@
 package com.nicolaslopez82.sms.web;
 
 import com.nicolaslopez82.sms.domain.User;
+import com.nicolaslopez82.sms.security.LoginThrottle;
 import com.nicolaslopez82.sms.service.UserService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -10,6 +11,7 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.client.HttpServerErrorException;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
 import java.util.List;
 
@@ -22,8 +24,14 @@ public class UserController {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private LoginThrottle loginThrottle;
+
     @PostMapping("/signin")
-    public String login(@RequestBody @Valid LoginDto loginDto) {
+    public String login(@RequestBody @Valid LoginDto loginDto, HttpServletRequest request) {
+        if (!loginThrottle.tryAcquire(loginDto.getUsername(), request.getRemoteAddr())) {
+            throw new HttpServerErrorException(HttpStatus.TOO_MANY_REQUESTS, "Too many login attempts");
+        }
         return userService.signin(loginDto.getUsername(), loginDto.getPassword()).orElseThrow(()->
                 new HttpServerErrorException(HttpStatus.FORBIDDEN, "Login Failed"));
     }
@@ -36,6 +44,45 @@ public class UserController {
                 loginDto.getLastName()).orElseThrow(() -> new HttpServerErrorException(HttpStatus.BAD_REQUEST,"User already exists"));
     }
 
+    /**
+     * Revoke the token of the request.
+     *
+     * @param authorization Bearer token header
+     */
+    @PostMapping("/signout")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void logout(@RequestHeader("Authorization") String authorization) {
+        if (!userService.signout(authorization.replace("Bearer", "").trim())) {
+            throw new HttpServerErrorException(HttpStatus.BAD_REQUEST, "Token can not be revoked");
+        }
+    }
+
+    /**
+     * Revoke a token by its identifier, the jti claim.
+     *
+     * @param tokenId token identifier
+     */
+    @DeleteMapping("/tokens/{tokenId}")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void revokeToken(@PathVariable(value = "tokenId") String tokenId) {
+        userService.revokeToken(tokenId);
+    }
+
+    /**
+     * Revoke every token issued to a user so far.
+     *
+     * @param username username
+     */
+    @DeleteMapping("/{username}/tokens")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void revokeTokens(@PathVariable(value = "username") String username) {
+        if (!userService.revokeTokens(username)) {
+            throw new HttpServerErrorException(HttpStatus.NOT_FOUND, "User not found");
+        }
+    }
+
     @GetMapping
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     public List<User> getAllUsers() {
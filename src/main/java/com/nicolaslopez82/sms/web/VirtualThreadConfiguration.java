@@ -0,0 +1,85 @@
+package com.nicolaslopez82.sms.web;
+
+import com.nicolaslopez82.sms.repository.ConnectionLimitingDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ConcurrentTaskExecutor;
+
+import javax.sql.DataSource;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Opt-in execution of the requests on virtual threads (Java 21 or later), enabled by
+ * com.nicolaslopez82.sms.virtual-threads.enabled.
+ *
+ * Tomcat runs every request on a new virtual thread instead of its worker pool, and the application
+ * task executor (@Async methods, asynchronous MVC requests) starts a virtual thread per task; the
+ * repositories are called on those threads. As the number of request threads is no longer bounded,
+ * the DataSource is wrapped in a ConnectionLimitingDataSource that queues them fairly for a connection.
+ *
+ * @author nicolaslopez
+ */
+@Configuration
+@ConditionalOnProperty(name = "com.nicolaslopez82.sms.virtual-threads.enabled", havingValue = "true")
+public class VirtualThreadConfiguration {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(VirtualThreadConfiguration.class);
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer(
+            @Value("${com.nicolaslopez82.sms.virtual-threads.trace-pinned:}") String tracePinned) {
+        Executor executor = threadPerTask(VirtualThreads.factory("http-vt-", tracePinned));
+        LOGGER.info("Requests run on virtual threads");
+        return protocolHandler -> protocolHandler.setExecutor(executor);
+    }
+
+    @Bean(name = {TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME, "taskExecutor"})
+    public ConcurrentTaskExecutor applicationTaskExecutor(
+            @Value("${com.nicolaslopez82.sms.virtual-threads.trace-pinned:}") String tracePinned) {
+        return new ConcurrentTaskExecutor(threadPerTask(VirtualThreads.factory("task-vt-", tracePinned)));
+    }
+
+    @Bean
+    public static BeanPostProcessor connectionLimitingPostProcessor(
+            @Value("${com.nicolaslopez82.sms.virtual-threads.connection-permits:${spring.datasource.hikari.maximum-pool-size:10}}") int permits,
+            @Value("${com.nicolaslopez82.sms.virtual-threads.connection-timeout:30000}") long timeout,
+            ObjectProvider<MeterRegistry> meterRegistry) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof DataSource) || bean instanceof ConnectionLimitingDataSource) {
+                    return bean;
+                }
+                ConnectionLimitingDataSource limited = new ConnectionLimitingDataSource((DataSource) bean, permits, timeout);
+                meterRegistry.ifAvailable(registry -> {
+                    Gauge.builder("jdbc.connections.limiter.waiting", limited, ConnectionLimitingDataSource::getWaiting)
+                            .description("Threads waiting for a database connection permit")
+                            .register(registry);
+                    Gauge.builder("jdbc.connections.limiter.available", limited, ConnectionLimitingDataSource::getAvailable)
+                            .description("Database connection permits not held")
+                            .register(registry);
+                });
+                LOGGER.info("DataSource {} limited to {} connections at once", beanName, permits);
+                return limited;
+            }
+        };
+    }
+
+    /**
+     * Start a new thread for every task, virtual threads are not pooled.
+     */
+    private static Executor threadPerTask(ThreadFactory threadFactory) {
+        return task -> threadFactory.newThread(task).start();
+    }
+}
@@ -0,0 +1,81 @@
+package com.nicolaslopez82.sms.web;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Virtual threads of Java 21, looked up by reflection so the application still compiles and runs on Java 8.
+ *
+ * @author nicolaslopez
+ */
+public final class VirtualThreads {
+
+    private static final String TRACE_PINNED_THREADS = "jdk.tracePinnedThreads";
+
+    private static final Method OF_VIRTUAL = method(Thread.class, "ofVirtual");
+    private static final Method IS_VIRTUAL = method(Thread.class, "isVirtual");
+
+    private VirtualThreads() {}
+
+    /**
+     * @return true if the JVM supports virtual threads
+     */
+    public static boolean isSupported() {
+        return OF_VIRTUAL != null;
+    }
+
+    /**
+     * @param thread a thread
+     * @return true if the thread is a virtual thread
+     */
+    public static boolean isVirtual(Thread thread) {
+        return IS_VIRTUAL != null && (Boolean) invoke(IS_VIRTUAL, thread);
+    }
+
+    /**
+     * Create a factory of virtual threads named prefix0, prefix1...
+     *
+     * @param prefix thread name prefix
+     * @param tracePinned "short" or "full" to print the stack of a virtual thread that blocks while pinned
+     *                    to its carrier (e.g. in a synchronized block), empty to keep the JVM setting;
+     *                    only effective before the first virtual thread is created
+     * @return the thread factory
+     * @throws IllegalStateException if the JVM does not support virtual threads
+     */
+    public static ThreadFactory factory(String prefix, String tracePinned) {
+        if (!isSupported()) {
+            throw new IllegalStateException("Virtual threads need Java 21 or later, running on Java "
+                    + System.getProperty("java.version"));
+        }
+        if (!tracePinned.isEmpty()) {
+            System.setProperty(TRACE_PINNED_THREADS, tracePinned);
+        }
+        try {
+            Class<?> builder = Class.forName("java.lang.Thread$Builder");
+            Object named = invoke(builder.getMethod("name", String.class, long.class),
+                    invoke(OF_VIRTUAL, null), prefix, 0L);
+            return (ThreadFactory) invoke(builder.getMethod("factory"), named);
+        } catch (ClassNotFoundException | NoSuchMethodException e) {
+            throw new IllegalStateException("Unexpected Thread.Builder API", e);
+        }
+    }
+
+    private static Method method(Class<?> type, String name) {
+        try {
+            return type.getMethod(name);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    private static Object invoke(Method method, Object target, Object... args) {
+        try {
+            return method.invoke(target, args);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        } catch (InvocationTargetException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
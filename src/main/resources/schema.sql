@@ -52,3 +52,13 @@ CREATE TABLE `explore_california`.user_role (
   CONSTRAINT FK_SECURITY_USER_ID FOREIGN KEY (user_id) REFERENCES security_user (id),
   CONSTRAINT FK_SECURITY_ROLE_ID FOREIGN KEY (role_id) REFERENCES security_role (id)
 );
+
+
+CREATE TABLE `explore_california`.revoked_token (
+  id BIGINT AUTO_INCREMENT PRIMARY KEY,
+  token_id varchar(64) DEFAULT NULL,
+  username varchar(255) DEFAULT NULL,
+  revoked_at BIGINT NOT NULL,
+  expires_at BIGINT NOT NULL
+);
+CREATE INDEX revoked_token_expires_at ON `explore_california`.revoked_token (expires_at);
@@ -0,0 +1,80 @@
+package com.nicolaslopez82.sms.repository;
+
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ConnectionLimitingDataSourceTest {
+
+    private DataSource pool = mock(DataSource.class);
+
+    @Test
+    public void releaseThePermitOnceWhenTheConnectionIsClosed() throws SQLException {
+        Connection pooled = mock(Connection.class);
+        when(pool.getConnection()).thenReturn(pooled);
+        ConnectionLimitingDataSource dataSource = new ConnectionLimitingDataSource(pool, 1, 10);
+
+        Connection connection = dataSource.getConnection();
+        assertEquals(dataSource.getAvailable(), 0);
+        assertThrows(SQLTransientConnectionException.class, dataSource::getConnection);
+
+        connection.close();
+        connection.close();
+        assertEquals(dataSource.getAvailable(), 1);
+        verify(pooled, times(2)).close();
+    }
+
+    @Test
+    public void releaseThePermitWhenThePoolFails() throws SQLException {
+        when(pool.getConnection()).thenThrow(new SQLException("pool exhausted"));
+        ConnectionLimitingDataSource dataSource = new ConnectionLimitingDataSource(pool, 1, 10);
+
+        assertThrows(SQLException.class, dataSource::getConnection);
+        assertEquals(dataSource.getAvailable(), 1);
+    }
+
+    @Test
+    public void serveTheWaitingThreadsInArrivalOrder() throws Exception {
+        when(pool.getConnection()).then(invocation -> mock(Connection.class));
+        ConnectionLimitingDataSource dataSource = new ConnectionLimitingDataSource(pool, 1, 10000);
+        Connection held = dataSource.getConnection();
+
+        List<Integer> served = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(3);
+        for (int i = 0; i < 3; i++) {
+            int arrival = i;
+            new Thread(() -> {
+                try (Connection connection = dataSource.getConnection()) {
+                    served.add(arrival);
+                } catch (SQLException e) {
+                    served.add(-1);
+                } finally {
+                    done.countDown();
+                }
+            }).start();
+            //wait until the thread is queued before starting the next one
+            while (dataSource.getWaiting() <= i) {
+                Thread.sleep(1);
+            }
+        }
+        held.close();
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(served.toString(), "[0, 1, 2]");
+    }
+}
@@ -0,0 +1,35 @@
+package com.nicolaslopez82.sms.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.CredentialsContainer;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class CaffeineUserCacheTest {
+
+    private CaffeineUserCache cache = new CaffeineUserCache(60000, 10, new SimpleMeterRegistry());
+
+    @Test
+    public void erasedCredentialsDoNotReachTheCache() {
+        UserDetails user = User.withUsername("admin").password("{bcrypt}hash").authorities("ROLE_ADMIN").build();
+        cache.putUserInCache(user);
+        ((CredentialsContainer) user).eraseCredentials();
+
+        UserDetails cached = cache.getUserFromCache("admin");
+        ((CredentialsContainer) cached).eraseCredentials();
+
+        assertEquals("{bcrypt}hash", cache.getUserFromCache("admin").getPassword());
+        assertEquals("ROLE_ADMIN", cached.getAuthorities().iterator().next().getAuthority());
+    }
+
+    @Test
+    public void removeUser() {
+        cache.putUserInCache(User.withUsername("admin").password("hash").authorities("ROLE_ADMIN").build());
+        cache.removeUserFromCache("admin");
+        assertNull(cache.getUserFromCache("admin"));
+    }
+}
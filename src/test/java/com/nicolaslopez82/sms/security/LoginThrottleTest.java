@@ -0,0 +1,45 @@
+package com.nicolaslopez82.sms.security;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LoginThrottleTest {
+
+    private MeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    public void limitAttemptsPerUsername() {
+        LoginThrottle throttle = new LoginThrottle(2, 100, 1000, registry);
+
+        assertTrue(throttle.tryAcquire("admin", "10.0.0.1"));
+        assertTrue(throttle.tryAcquire("admin", "10.0.0.2"));
+        assertFalse(throttle.tryAcquire("admin", "10.0.0.3"));
+        //other users are not affected
+        assertTrue(throttle.tryAcquire("csr_jane", "10.0.0.3"));
+        assertEquals(1, registry.get("login.throttled").tag("by", "username").counter().count());
+    }
+
+    @Test
+    public void limitAttemptsPerAddress() {
+        LoginThrottle throttle = new LoginThrottle(100, 2, 1000, registry);
+
+        assertTrue(throttle.tryAcquire("admin", "10.0.0.1"));
+        assertTrue(throttle.tryAcquire("csr_jane", "10.0.0.1"));
+        assertFalse(throttle.tryAcquire("larry", "10.0.0.1"));
+        assertTrue(throttle.tryAcquire("larry", "10.0.0.2"));
+        assertEquals(1, registry.get("login.throttled").tag("by", "address").counter().count());
+    }
+
+    @Test
+    public void zeroDisablesALimit() {
+        LoginThrottle throttle = new LoginThrottle(0, 0, 1000, registry);
+        for (int i = 0; i < 100; i++) {
+            assertTrue(throttle.tryAcquire("admin", "10.0.0.1"));
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.nicolaslopez82.sms.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PasswordEncodersTest {
+
+    private PasswordEncoder encoder = PasswordEncoders.delegating(PasswordEncoders.BCRYPT, 5);
+
+    @Test
+    public void keepHashesOfTheTarget() {
+        String encoded = encoder.encode("letmein");
+
+        assertTrue(encoded.startsWith("{bcrypt}$2a$05$"));
+        assertTrue(encoder.matches("letmein", encoded));
+        assertFalse(encoder.upgradeEncoding(encoded));
+    }
+
+    @Test
+    public void upgradeUnprefixedHashes() {
+        String legacy = new BCryptPasswordEncoder(5).encode("letmein");
+
+        assertTrue(encoder.matches("letmein", legacy));
+        assertTrue(encoder.upgradeEncoding(legacy));
+    }
+
+    @Test
+    public void upgradeOrDowngradeTheStrength() {
+        assertTrue(encoder.upgradeEncoding("{bcrypt}" + new BCryptPasswordEncoder(4).encode("letmein")));
+        assertTrue(encoder.upgradeEncoding("{bcrypt}" + new BCryptPasswordEncoder(6).encode("letmein")));
+    }
+
+    @Test
+    public void upgradeToAnotherEncoding() {
+        PasswordEncoder pbkdf2 = PasswordEncoders.delegating(PasswordEncoders.PBKDF2, 5);
+        String bcrypt = encoder.encode("letmein");
+
+        assertTrue(pbkdf2.matches("letmein", bcrypt));
+        assertTrue(pbkdf2.upgradeEncoding(bcrypt));
+        assertTrue(pbkdf2.encode("letmein").startsWith("{pbkdf2}"));
+    }
+
+    @Test
+    public void rejectUnknownEncoding() {
+        assertThrows(IllegalArgumentException.class, () -> PasswordEncoders.delegating("md5", 5));
+    }
+}
@@ -0,0 +1,25 @@
+package com.nicolaslopez82.sms.security;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TimedPasswordEncoderTest {
+
+    private MeterRegistry registry = new SimpleMeterRegistry();
+    private TimedPasswordEncoder encoder = new TimedPasswordEncoder(new BCryptPasswordEncoder(4), registry);
+
+    @Test
+    public void recordsEncodeAndMatches() {
+        String encoded = encoder.encode("letmein");
+        assertTrue(encoder.matches("letmein", encoded));
+        encoder.matches("wrong", encoded);
+
+        assertEquals(registry.get("password.encoder").tag("operation", "encode").timer().count(), 1);
+        assertEquals(registry.get("password.encoder").tag("operation", "matches").timer().count(), 2);
+    }
+}
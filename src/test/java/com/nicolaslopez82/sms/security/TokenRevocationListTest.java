@@ -0,0 +1,105 @@
+package com.nicolaslopez82.sms.security;
+
+import com.nicolaslopez82.sms.domain.RevokedToken;
+import com.nicolaslopez82.sms.repository.RevokedTokenRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class TokenRevocationListTest {
+
+    private static final long VALIDITY = 600000;
+
+    private RevokedTokenRepository repository = mock(RevokedTokenRepository.class);
+
+    private TokenRevocationList revocationList() {
+        when(repository.save(any(RevokedToken.class))).then(invocation -> invocation.getArgument(0));
+        TokenRevocationList revocationList = new TokenRevocationList(repository, VALIDITY, 1000);
+        revocationList.load();
+        return revocationList;
+    }
+
+    private static VerifiedToken token(String id, String username, long issuedAt) {
+        return new VerifiedToken(id, username, Collections.emptyList(), issuedAt, issuedAt + VALIDITY);
+    }
+
+    @Test
+    public void revokeAToken() {
+        TokenRevocationList revocationList = revocationList();
+        long now = System.currentTimeMillis();
+        VerifiedToken revoked = token("1", "admin", now);
+
+        revocationList.revokeToken("1", "admin", revoked.getExpiresAt());
+
+        assertTrue(revocationList.isRevoked(revoked));
+        assertFalse(revocationList.isRevoked(token("2", "admin", now)));
+        assertFalse(revocationList.isRevoked(token(null, "admin", now)));
+        verify(repository).save(any(RevokedToken.class));
+    }
+
+    @Test
+    public void revokeTheTokensOfAUser() {
+        TokenRevocationList revocationList = revocationList();
+        long now = System.currentTimeMillis();
+
+        revocationList.revokeUser("csr_jane");
+
+        assertTrue(revocationList.isRevoked(token("1", "csr_jane", now - 1000)));
+        assertTrue(revocationList.isRevoked(token(null, "csr_jane", now - 1000)));
+        assertFalse(revocationList.isRevoked(token("1", "admin", now - 1000)));
+        //issued after the revocation
+        assertFalse(revocationList.isRevoked(token("2", "csr_jane", now + 2000)));
+    }
+
+    @Test
+    public void loadAndPurgeRevocations() {
+        long now = System.currentTimeMillis();
+        when(repository.findByExpiresAtGreaterThan(anyLong())).thenReturn(Arrays.asList(
+                new RevokedToken("1", "admin", now, now + VALIDITY),
+                new RevokedToken("2", "admin", now - VALIDITY, now + 50),
+                new RevokedToken(null, "csr_jane", now, now + VALIDITY)));
+        TokenRevocationList revocationList = revocationList();
+
+        assertEquals(3, revocationList.size());
+        assertTrue(revocationList.isRevoked(token("1", "admin", now)));
+        assertTrue(revocationList.isRevoked(token("2", "admin", now)));
+        assertTrue(revocationList.isRevoked(token("3", "csr_jane", now - 1000)));
+
+        while (System.currentTimeMillis() <= now + 50) {
+            Thread.yield();
+        }
+        revocationList.purge();
+
+        assertEquals(2, revocationList.size());
+        assertFalse(revocationList.isRevoked(token("2", "admin", now)));
+        assertTrue(revocationList.isRevoked(token("1", "admin", now)));
+        verify(repository).deleteExpired(anyLong());
+    }
+
+    @Test
+    public void bloomFilterFalsePositives() {
+        BloomFilter filter = new BloomFilter(10000, 0.01);
+        for (int i = 0; i < 10000; i++) {
+            filter.put("t:" + i);
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 10000; i++) {
+            assertTrue(filter.mightContain("t:" + i));
+            if (filter.mightContain("u:" + i)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 200, falsePositives + " false positives");
+        assertEquals(7, filter.getHashCount());
+    }
+}
@@ -0,0 +1,70 @@
+package com.nicolaslopez82.sms.security;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import org.junit.jupiter.api.Test;
+
+import java.util.Base64;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class VerifiedTokenCacheTest {
+
+    private static final long NOW = 1_000_000L;
+
+    private VerifiedToken verifiedToken(long expiresAt) {
+        return new VerifiedToken(null, "admin", Collections.emptyList(), 0, expiresAt);
+    }
+
+    @Test
+    public void hitUntilExpiration() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(10);
+        VerifiedToken verified = verifiedToken(NOW + 1000);
+        assertNull(cache.get("token", NOW));
+        cache.put("token", verified, NOW);
+
+        assertSame(cache.get("token", NOW + 999), verified);
+        assertNull(cache.get("token", NOW + 1000));
+        assertEquals(cache.size(), 0);
+        assertEquals(cache.getHits(), 1);
+        assertEquals(cache.getMisses(), 2);
+    }
+
+    @Test
+    public void bounded() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(10);
+        cache.put("expired", verifiedToken(NOW), NOW);
+        for (int i = 0; i < 100; i++) {
+            cache.put("token" + i, verifiedToken(NOW + 1000), NOW + 1);
+        }
+        assertTrue(cache.size() <= 10);
+        assertNull(cache.get("expired", NOW + 1));
+    }
+
+    @Test
+    public void disabled() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(0);
+        cache.put("token", verifiedToken(NOW + 1000), NOW);
+        assertNull(cache.get("token", NOW));
+        assertEquals(cache.size(), 0);
+    }
+
+    @Test
+    public void tokenWithoutExpirationIsInvalid() {
+        JwtProvider jwtProvider = new JwtProvider("secret", 1000, 10);
+        String token = Jwts.builder()
+                .setSubject("admin")
+                .signWith(SignatureAlgorithm.HS256, Base64.getEncoder().encodeToString("secret".getBytes()))
+                .compact();
+
+        assertFalse(jwtProvider.verify(token).isPresent());
+        assertFalse(jwtProvider.isValidToken(token));
+        assertEquals(jwtProvider.getRejectedTokens(), 2);
+        assertEquals(jwtProvider.getTokenCache().size(), 0);
+    }
+}
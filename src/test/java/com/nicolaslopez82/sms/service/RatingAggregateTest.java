@@ -0,0 +1,66 @@
+package com.nicolaslopez82.sms.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RatingAggregateTest {
+
+    @Test
+    public void plus() {
+        RatingAggregate aggregate = RatingAggregate.EMPTY.plus(5).plus(3).plus(4, 2);
+        assertEquals(aggregate.getCount(), 4);
+        assertEquals(aggregate.getSum(), 16);
+        assertEquals(aggregate.getMin(), 3);
+        assertEquals(aggregate.getMax(), 5);
+        assertEquals(aggregate.getAverage().getAsDouble(), 4.0);
+        assertArrayEquals(aggregate.getHistogram(), new long[]{0, 0, 0, 1, 2, 1});
+    }
+
+    @Test
+    public void minusRecomputesMinAndMax() {
+        RatingAggregate aggregate = RatingAggregate.EMPTY.plus(1).plus(3).plus(5).minus(5).minus(1);
+        assertEquals(aggregate.getCount(), 1);
+        assertEquals(aggregate.getMin(), 3);
+        assertEquals(aggregate.getMax(), 3);
+        assertEquals(aggregate.minus(3), RatingAggregate.EMPTY);
+        assertFalse(RatingAggregate.EMPTY.getAverage().isPresent());
+    }
+
+    @Test
+    public void replace() {
+        RatingAggregate aggregate = RatingAggregate.EMPTY.plus(2).plus(4).replace(2, 5);
+        assertEquals(aggregate.getSum(), 9);
+        assertEquals(aggregate.getMin(), 4);
+        assertEquals(aggregate.getMax(), 5);
+        assertArrayEquals(aggregate.getHistogram(), new long[]{0, 0, 0, 0, 1, 1});
+    }
+
+    @Test
+    public void outOfRangeScoreCanNotBeRemovedExactly() {
+        RatingAggregate aggregate = RatingAggregate.EMPTY.plus(10).plus(4).plus(2);
+        assertEquals(aggregate.getMax(), 10);
+        assertNull(aggregate.minus(2));
+    }
+
+    @Test
+    public void standardDeviationAndPercentiles() {
+        RatingAggregate aggregate = RatingAggregate.of(new long[]{0, 1, 0, 2, 0, 1});
+        assertEquals(aggregate.getCount(), 4);
+        assertEquals(aggregate.getMin(), 1);
+        assertEquals(aggregate.getMax(), 5);
+        assertEquals(aggregate.getStandardDeviation().getAsDouble(), Math.sqrt(2), 1e-9);
+        assertEquals(aggregate.getPercentile(25).getAsInt(), 1);
+        assertEquals(aggregate.getPercentile(50).getAsInt(), 3);
+        assertEquals(aggregate.getPercentile(75).getAsInt(), 3);
+        assertEquals(aggregate.getPercentile(100).getAsInt(), 5);
+        assertTrue(aggregate.isHistogramComplete());
+        assertFalse(RatingAggregate.EMPTY.getPercentile(50).isPresent());
+        assertFalse(RatingAggregate.EMPTY.getStandardDeviation().isPresent());
+        assertFalse(aggregate.plus(10).isHistogramComplete());
+    }
+}
@@ -0,0 +1,67 @@
+package com.nicolaslopez82.sms.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+public class RatingResponseCacheTest {
+
+    private static final byte[] AVERAGE = "{\"average\":4.5}".getBytes(StandardCharsets.UTF_8);
+
+    private TourVersions tourVersions = new TourVersions();
+    private RatingResponseCache cache = new RatingResponseCache(tourVersions, 1 << 20, new SimpleMeterRegistry());
+
+    private static String text(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void hit() {
+        cache.put(1, tourVersions.ratingsVersion(1), "average", AVERAGE);
+        ByteBuffer cached = cache.get(1, "average").get();
+        assertEquals("{\"average\":4.5}", text(cached));
+        //every hit gets its own position
+        assertEquals("{\"average\":4.5}", text(cache.get(1, "average").get()));
+        assertFalse(cache.get(1, "ratings?size=20&sort=UNSORTED").isPresent());
+        assertFalse(cache.get(2, "average").isPresent());
+    }
+
+    @Test
+    public void changedRatingsAreNotServed() {
+        cache.put(1, tourVersions.ratingsVersion(1), "average", AVERAGE);
+        tourVersions.ratingsChanged(1);
+        assertFalse(cache.get(1, "average").isPresent());
+    }
+
+    @Test
+    public void responseRenderedBeforeAChangeIsNotCached() {
+        long version = tourVersions.ratingsVersion(1);
+        tourVersions.ratingsChanged(1);
+        cache.invalidate(1);
+        cache.put(1, version, "average", AVERAGE);
+        assertFalse(cache.get(1, "average").isPresent());
+    }
+
+    @Test
+    public void invalidate() {
+        cache.put(1, tourVersions.ratingsVersion(1), "average", AVERAGE);
+        cache.put(2, tourVersions.ratingsVersion(2), "average", AVERAGE);
+        cache.invalidate(1);
+        assertFalse(cache.get(1, "average").isPresent());
+        assertEquals("{\"average\":4.5}", text(cache.get(2, "average").get()));
+    }
+
+    @Test
+    public void disabled() {
+        RatingResponseCache disabled = new RatingResponseCache(tourVersions, 0, new SimpleMeterRegistry());
+        disabled.put(1, tourVersions.ratingsVersion(1), "average", AVERAGE);
+        assertFalse(disabled.get(1, "average").isPresent());
+    }
+}
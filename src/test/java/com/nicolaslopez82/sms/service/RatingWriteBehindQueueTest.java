@@ -0,0 +1,116 @@
+package com.nicolaslopez82.sms.service;
+
+import com.nicolaslopez82.sms.domain.Tour;
+import com.nicolaslopez82.sms.domain.TourRating;
+import com.nicolaslopez82.sms.repository.TourRatingRepository;
+import com.nicolaslopez82.sms.repository.TourRepository;
+import com.nicolaslopez82.sms.web.RatingDto;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class RatingWriteBehindQueueTest {
+
+    private static final int TOUR_ID = 1;
+
+    private TourRatingRepository tourRatingRepository = mock(TourRatingRepository.class);
+    private TourRepository tourRepository = mock(TourRepository.class);
+    private TourRatingAggregates tourRatingAggregates = mock(TourRatingAggregates.class);
+    private Tour tour = mock(Tour.class);
+
+    @TempDir
+    Path journalDir;
+
+    private RatingWriteBehindQueue queue(int capacity, String journal) throws IOException {
+        when(tourRatingRepository.findByTourIdAndCustomerId(anyInt(), anyInt())).thenReturn(Optional.empty());
+        when(tourRatingRepository.save(any(TourRating.class))).then(invocation -> invocation.getArgument(0));
+        when(tourRepository.findById(TOUR_ID)).thenReturn(Optional.of(tour));
+        RatingWriteBehindQueue queue = new RatingWriteBehindQueue(tourRatingRepository, tourRepository,
+                tourRatingAggregates, mock(PlatformTransactionManager.class), capacity, 2, 0, journal);
+        queue.open();
+        return queue;
+    }
+
+    @Test
+    public void coalesceEditsOfARating() throws IOException {
+        RatingWriteBehindQueue queue = queue(10, "");
+        queue.submit(TOUR_ID, new RatingDto(3, "Fair", 10), true);
+        RatingDto merged = queue.submit(TOUR_ID, new RatingDto(5, null, 10), false);
+
+        assertEquals(1, queue.size());
+        assertEquals(5, merged.getScore());
+        assertEquals("Fair", merged.getComment());
+        assertTrue(queue.isRated(TOUR_ID, 10));
+
+        queue.flush();
+
+        ArgumentCaptor<TourRating> saved = ArgumentCaptor.forClass(TourRating.class);
+        verify(tourRatingRepository).save(saved.capture());
+        assertEquals(5, saved.getValue().getScore());
+        assertEquals("Fair", saved.getValue().getComment());
+        verify(tourRatingAggregates).added(TOUR_ID, 5);
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    public void deleteCancelsAPendingRating() throws IOException {
+        RatingWriteBehindQueue queue = queue(10, "");
+        queue.submit(TOUR_ID, new RatingDto(3, "Fair", 10), true);
+        queue.submitDelete(TOUR_ID, 10);
+
+        assertFalse(queue.isRated(TOUR_ID, 10));
+        queue.flush();
+
+        verify(tourRatingRepository, never()).save(any(TourRating.class));
+    }
+
+    @Test
+    public void rejectWhenFull() throws IOException {
+        RatingWriteBehindQueue queue = queue(2, "");
+        queue.submit(TOUR_ID, new RatingDto(3, "Fair", 10), true);
+        queue.submit(TOUR_ID, new RatingDto(3, "Fair", 11), true);
+
+        assertThrows(RatingQueueFullException.class, () -> queue.submit(TOUR_ID, new RatingDto(3, "Fair", 12), true));
+        //a pending rating can still be edited
+        queue.submit(TOUR_ID, new RatingDto(4, "Good", 11), true);
+
+        queue.flush();
+        queue.submit(TOUR_ID, new RatingDto(3, "Fair", 12), true);
+    }
+
+    @Test
+    public void replayTheJournal() throws IOException {
+        RatingWriteBehindQueue crashed = queue(10, journalDir.toString());
+        crashed.submit(TOUR_ID, new RatingDto(2, "Poor", 10), true);
+        crashed.submit(TOUR_ID, new RatingDto(null, "Not so poor", 10), false);
+        crashed.submit(TOUR_ID, new RatingDto(4, "Good", 11), true);
+
+        RatingWriteBehindQueue restarted = queue(10, journalDir.toString());
+        assertEquals(2, restarted.size());
+        restarted.flush();
+
+        verify(tourRatingRepository, times(2)).save(any(TourRating.class));
+        verify(tourRatingAggregates).added(TOUR_ID, 2);
+        verify(tourRatingAggregates).added(TOUR_ID, 4);
+        //flushed segments are deleted, only the current one is left
+        assertEquals(1, Files.list(journalDir).count());
+    }
+}
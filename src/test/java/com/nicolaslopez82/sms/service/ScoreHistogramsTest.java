@@ -0,0 +1,56 @@
+package com.nicolaslopez82.sms.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ScoreHistogramsTest {
+
+    @Test
+    public void growBeyondTheExpectedNumberOfTours() {
+        ScoreHistograms histograms = new ScoreHistograms(1);
+        for (int tourId = 0; tourId < 1000; tourId++) {
+            histograms.add(tourId, tourId % 6, tourId);
+            histograms.add(tourId, 5, 1);
+        }
+        assertEquals(histograms.size(), 1000);
+        assertArrayEquals(histograms.get(7), new long[]{0, 7, 0, 0, 0, 1});
+        assertArrayEquals(histograms.get(11), new long[]{0, 0, 0, 0, 0, 12});
+        assertArrayEquals(histograms.get(-1), new long[6]);
+
+        Map<Integer, Long> totals = new HashMap<>();
+        histograms.forEach((tourId, histogram) -> totals.put(tourId, histogram[tourId % 6]));
+        assertEquals(totals.size(), 1000);
+        assertEquals(totals.get(998), 998L);
+    }
+
+    @Test
+    public void writeAndReadBack() throws IOException {
+        ScoreHistograms histograms = new ScoreHistograms(10);
+        histograms.add(1, 4, 2);
+        histograms.add(1, 0, 1);
+        histograms.add(-42, 3, 5);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        histograms.writeTo(new DataOutputStream(bytes));
+
+        ScoreHistograms read = ScoreHistograms.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        assertEquals(read.size(), 2);
+        assertArrayEquals(read.get(1), new long[]{1, 0, 0, 0, 2, 0});
+        assertArrayEquals(read.get(-42), new long[]{0, 0, 0, 5, 0, 0});
+    }
+
+    @Test
+    public void rejectScoresOutOfRange() {
+        assertThrows(IllegalArgumentException.class, () -> new ScoreHistograms(1).add(1, 6, 1));
+    }
+}
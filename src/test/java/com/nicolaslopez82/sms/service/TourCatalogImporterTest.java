@@ -0,0 +1,70 @@
+package com.nicolaslopez82.sms.service;
+
+import com.nicolaslopez82.sms.domain.TourPackage;
+import com.nicolaslopez82.sms.repository.TourPackageRepository;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class TourCatalogImporterTest {
+
+    private static final String TOUR = "{\"packageType\": \"%s\", \"title\": \"%s\", \"blurb\": \"b\", " +
+            "\"description\": \"d\", \"bullets\": \"u\", \"difficulty\": \"Medium\", \"length\": \"3 days\", " +
+            "\"price\": \"750\", \"region\": \"%s\", \"keywords\": \"k\"}";
+
+    private TourPackageRepository tourPackageRepository = mock(TourPackageRepository.class);
+    private JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private TourCatalogImporter importer = new TourCatalogImporter(tourPackageRepository, jdbcTemplate,
+            mock(EntityManagerFactory.class), new TourVersions(), "unused", 2, 2);
+
+    @Test
+    public void importTours() throws IOException {
+        when(tourPackageRepository.findByName("Backpack Cal")).thenReturn(Optional.of(new TourPackage("BC", "Backpack Cal")));
+        when(tourPackageRepository.findByName("Unknown")).thenReturn(Optional.empty());
+        String json = "[" + String.join(",",
+                String.format(TOUR, "Backpack Cal", "One", "Central Coast"),
+                String.format(TOUR, "Backpack Cal", "Two", "Varies"),
+                String.format(TOUR, "Backpack Cal", "Three", "Napa/Sonoma Counties"),
+                String.format(TOUR, "Unknown", "Four", "Varies"),
+                String.format(TOUR, "Backpack Cal", "Five", "Central Coast")) + "]";
+
+        long imported = importer.importTours(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(imported, 3);
+        //package lookups are memoized
+        verify(tourPackageRepository).findByName("Backpack Cal");
+        verify(tourPackageRepository).findByName("Unknown");
+        //batches of 2 rows
+        verify(jdbcTemplate, times(2)).batchUpdate(anyString(), anyList());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void importMapsColumns() throws IOException {
+        when(tourPackageRepository.findByName("Backpack Cal")).thenReturn(Optional.of(new TourPackage("BC", "Backpack Cal")));
+        String json = "[" + String.format(TOUR, "Backpack Cal", "One", "Central Coast") + "]";
+        ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+
+        importer.importTours(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+
+        verify(jdbcTemplate).batchUpdate(anyString(), rows.capture());
+        assertArrayEquals(rows.getValue().get(0),
+                new Object[]{"BC", "One", "d", "b", "u", 750, "3 days", "Medium", "Central Coast", "k"});
+    }
+}
@@ -0,0 +1,96 @@
+package com.nicolaslopez82.sms.service;
+
+import com.nicolaslopez82.sms.domain.Difficulty;
+import com.nicolaslopez82.sms.domain.Region;
+import com.nicolaslopez82.sms.domain.Tour;
+import com.nicolaslopez82.sms.domain.TourPackage;
+import com.nicolaslopez82.sms.repository.TourRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class TourLeaderboardTest {
+
+    private TourSearchIndex index = new TourSearchIndex(mock(TourRepository.class));
+    private TourLeaderboard leaderboard = new TourLeaderboard(index, 2);
+
+    private static Tour tour(int id, String code, Difficulty difficulty, Region region) {
+        Tour tour = mock(Tour.class);
+        when(tour.getId()).thenReturn(id);
+        when(tour.getTourPackage()).thenReturn(new TourPackage(code, code));
+        when(tour.getDifficulty()).thenReturn(difficulty);
+        when(tour.getRegion()).thenReturn(region);
+        return tour;
+    }
+
+    private static List<Integer> ids(List<TourLeaderboard.Ranked> ranked) {
+        return ranked.stream().map(r -> r.getTour().getId()).collect(Collectors.toList());
+    }
+
+    @BeforeEach
+    public void rankTours() {
+        index.index(tour(1, "BC", Difficulty.Medium, Region.Central_Coast));
+        index.index(tour(2, "BC", Difficulty.Difficult, Region.Northern_California));
+        index.index(tour(3, "CH", Difficulty.Easy, Region.Central_Coast));
+        index.index(tour(4, "CH", Difficulty.Easy, Region.Varies));
+        Map<Integer, RatingAggregate> aggregates = new HashMap<>();
+        aggregates.put(1, RatingAggregate.EMPTY.plus(4, 2));
+        aggregates.put(2, RatingAggregate.EMPTY.plus(5, 2).plus(3, 2));
+        aggregates.put(3, RatingAggregate.EMPTY.plus(5, 3));
+        //below the minimum count
+        aggregates.put(4, RatingAggregate.EMPTY.plus(5));
+        leaderboard.rebuild(aggregates, Collections.emptySet());
+    }
+
+    @Test
+    public void rankByAverageThenCount() {
+        assertEquals(Arrays.asList(3, 2, 1), ids(leaderboard.top(null, null, null, 1, 10)));
+        assertEquals(Arrays.asList(3, 2), ids(leaderboard.top(null, null, null, 1, 2)));
+        assertEquals(Arrays.asList(3, 2), ids(leaderboard.top(null, null, null, 3, 10)));
+        assertEquals(4.0, leaderboard.top(null, null, null, 1, 10).get(1).getAverage());
+    }
+
+    @Test
+    public void filterByFacets() {
+        assertEquals(Arrays.asList(3, 1), ids(leaderboard.top(Region.Central_Coast, null, null, 1, 10)));
+        assertEquals(Arrays.asList(2, 1), ids(leaderboard.top(null, null, "BC", 1, 10)));
+        assertEquals(Arrays.asList(1), ids(leaderboard.top(Region.Central_Coast, Difficulty.Medium, "BC", 1, 10)));
+        assertEquals(Collections.emptyList(), ids(leaderboard.top(null, null, "XX", 1, 10)));
+    }
+
+    @Test
+    public void rerankOnUpdates() {
+        leaderboard.updated(1, RatingAggregate.EMPTY.plus(5, 4));
+        leaderboard.updated(4, RatingAggregate.EMPTY.plus(5, 2));
+        leaderboard.updated(3, RatingAggregate.EMPTY);
+        assertEquals(Arrays.asList(1, 4, 2), ids(leaderboard.top(null, null, null, 1, 10)));
+
+        Tour moved = tour(1, "CH", Difficulty.Medium, Region.Varies);
+        leaderboard.tourChanged(moved);
+        assertEquals(Arrays.asList(1, 4), ids(leaderboard.top(Region.Varies, null, null, 1, 10)));
+        assertEquals(Collections.emptyList(), ids(leaderboard.top(Region.Central_Coast, null, null, 1, 10)));
+        assertEquals(Arrays.asList(2), ids(leaderboard.top(null, null, "BC", 1, 10)));
+    }
+
+    @Test
+    public void rebuildSkipsToursChangedSinceTheSnapshot() {
+        leaderboard.updated(1, RatingAggregate.EMPTY.plus(5, 4));
+        Map<Integer, RatingAggregate> snapshot = new HashMap<>();
+        snapshot.put(1, RatingAggregate.EMPTY.plus(4, 2));
+        snapshot.put(2, RatingAggregate.EMPTY.plus(5, 2).plus(3, 2));
+        leaderboard.rebuild(snapshot, new HashSet<>(Arrays.asList(1, 3)));
+        assertEquals(Arrays.asList(1, 3, 2), ids(leaderboard.top(null, null, null, 1, 10)));
+        assertEquals(5.0, leaderboard.top(null, null, null, 1, 10).get(0).getAverage());
+    }
+}
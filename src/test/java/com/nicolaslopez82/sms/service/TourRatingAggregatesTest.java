@@ -0,0 +1,92 @@
+package com.nicolaslopez82.sms.service;
+
+import com.nicolaslopez82.sms.repository.ScoreCount;
+import com.nicolaslopez82.sms.repository.TourRatingRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anySet;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class TourRatingAggregatesTest {
+
+    private TourRatingRepository tourRatingRepository = mock(TourRatingRepository.class);
+    private TourVersions tourVersions = new TourVersions();
+    private TourRatingAggregates aggregates = new TourRatingAggregates(tourRatingRepository,
+            mock(TourLeaderboard.class), tourVersions,
+            new RatingResponseCache(tourVersions, 0, new SimpleMeterRegistry()), "");
+
+    private static ScoreCount scoreCount(int tourId, int score, long total) {
+        ScoreCount scoreCount = mock(ScoreCount.class);
+        when(scoreCount.getTourId()).thenReturn(tourId);
+        when(scoreCount.getScore()).thenReturn(score);
+        when(scoreCount.getTotal()).thenReturn(total);
+        return scoreCount;
+    }
+
+    @Test
+    public void rebuildCorrectsDrift() {
+        List<ScoreCount> loaded = Collections.singletonList(scoreCount(1, 4, 1));
+        List<ScoreCount> counted = Arrays.asList(scoreCount(1, 4, 3), scoreCount(2, 2, 1));
+        when(tourRatingRepository.countScoresByTourId(1)).thenReturn(loaded);
+        aggregates.get(1);
+        when(tourRatingRepository.countScores()).thenReturn(counted);
+
+        aggregates.rebuild();
+
+        assertEquals(3, aggregates.get(1).getCount());
+        assertEquals(1, aggregates.get(2).getCount());
+        assertEquals(1, tourVersions.ratingsVersion(1));
+    }
+
+    @Test
+    public void rebuildKeepsChangesMadeMeanwhile() {
+        ScoreCount four = scoreCount(1, 4, 1);
+        when(tourRatingRepository.countScoresByTourId(1)).thenReturn(Collections.singletonList(four));
+        aggregates.get(1);
+        //a rating of tour 1 is added once its scores are counted
+        when(tourRatingRepository.countScores()).then(invocation -> {
+            aggregates.added(1, 5);
+            return Collections.singletonList(four);
+        });
+
+        aggregates.rebuild();
+
+        assertEquals(2, aggregates.get(1).getCount());
+        aggregates.added(1, 3);
+        assertEquals(3, aggregates.get(1).getCount());
+    }
+
+    @Test
+    public void snapshotSkipsTheStartupRebuild(@TempDir Path dir) {
+        String snapshot = dir.resolve("aggregates.bin").toString();
+        List<ScoreCount> counted = Arrays.asList(scoreCount(1, 4, 3), scoreCount(2, 2, 1));
+        when(tourRatingRepository.countScores()).thenReturn(counted);
+        TourRatingAggregates saved = new TourRatingAggregates(tourRatingRepository, mock(TourLeaderboard.class),
+                tourVersions, new RatingResponseCache(tourVersions, 0, new SimpleMeterRegistry()), snapshot);
+        saved.load();
+        saved.ready();
+        verify(tourRatingRepository).countScores();
+
+        TourLeaderboard tourLeaderboard = mock(TourLeaderboard.class);
+        TourRatingAggregates restarted = new TourRatingAggregates(tourRatingRepository, tourLeaderboard,
+                tourVersions, new RatingResponseCache(tourVersions, 0, new SimpleMeterRegistry()), snapshot);
+        restarted.load();
+        restarted.ready();
+
+        verify(tourRatingRepository).countScores();
+        verify(tourLeaderboard).rebuild(anyMap(), anySet());
+        assertEquals(3, restarted.get(1).getCount());
+        assertEquals(1, restarted.get(2).getCount());
+    }
+}
@@ -1,23 +1,24 @@
 package com.nicolaslopez82.sms.service;
 
 import com.nicolaslopez82.sms.domain.*;
+import com.nicolaslopez82.sms.web.BulkRatingResult;
 import com.nicolaslopez82.sms.web.RatingDto;
-import org.junit.Test;
-import org.junit.runner.RunWith;
+import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
-import org.springframework.dao.DataIntegrityViolationException;
-import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.context.ActiveProfiles;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.NoSuchElementException;
 
 import static org.hamcrest.CoreMatchers.is;
-import static org.junit.Assert.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
-@RunWith(SpringRunner.class)
 @SpringBootTest
+@ActiveProfiles("statements")
 @Transactional
 public class TourRatingServiceIntegrationTest {
 
@@ -33,49 +34,37 @@ public class TourRatingServiceIntegrationTest {
     public void delete() {
         List<TourRating> tourRatings = service.lookupAll();
         service.delete(tourRatings.get(0), tourRatings.get(0).getCustomerId());
-        assertEquals(service.lookupAll().size(), is(tourRatings.size() - 1));
+        assertThat(service.lookupAll().size(), is(tourRatings.size() - 1));
     }
 
     //UnHappy Path, Tour NOT_A_TOUR_ID does not exist
-    @Test(expected = NoSuchElementException.class)
+    @Test
     public void deleteException() {
-        TourPackage tourPackage = new TourPackage ("xx", "mock_not_valid");
-        Tour tour = new Tour("not_valid_tour", "description", "blurb", 3000, "duration", "bullets",
-                "keywords", tourPackage, Difficulty.Difficult, Region.Northern_California);
-        TourRating tourRating = new TourRating(tour, 1234, 5);
-        service.delete(tourRating, 1234);
+        assertThrows(NoSuchElementException.class,
+                () -> service.verifyTourRating(service.verifyTour(NOT_A_TOUR_ID), 1234));
     }
 
     //Happy Path to Create a new Tour Rating
     @Test
     public void createTourRating() {
-
-        TourPackage tourPackage = new TourPackage ("xx", "mock_not_valid");
-        Tour tour = new Tour("not_valid_tour", "description", "blurb", 3000, "duration", "bullets",
-                "keywords", tourPackage, Difficulty.Difficult, Region.Northern_California);
-        TourRating tourRating = new TourRating(tour, 1234, 5);
-        RatingDto ratingDto = new RatingDto(tourRating);
+        Tour tour = service.verifyTour(TOUR_ID);
+        RatingDto ratingDto = new RatingDto(2, "it was fair", CUSTOMER_ID);
 
         //would throw NoSuchElementException if TourRating for TOUR_ID by CUSTOMER_ID already exists
         service.createTourRating(tour, ratingDto);
 
         //Verify New Tour Rating created.
         TourRating newTourRating = service.verifyTourRating(tour, CUSTOMER_ID);
-        assertEquals(newTourRating.getTour().getId(), is(TOUR_ID));
-        assertEquals(newTourRating.getCustomerId(), is(CUSTOMER_ID));
-        assertEquals(newTourRating.getScore(), is(2));
-        assertEquals(newTourRating.getComment(), is ("it was fair"));
+        assertThat(newTourRating.getTour().getId(), is(TOUR_ID));
+        assertThat(newTourRating.getCustomerId(), is(CUSTOMER_ID));
+        assertThat(newTourRating.getScore(), is(2));
+        assertThat(newTourRating.getComment(), is("it was fair"));
     }
 
     //UnHappy Path, Tour NOT_A_TOUR_ID does not exist
-    @Test(expected = NoSuchElementException.class)
+    @Test
     public void createNewException() {
-        TourPackage tourPackage = new TourPackage ("xx", "mock_not_valid");
-        Tour tour = new Tour("not_valid_tour", "description", "blurb", 3000, "duration", "bullets",
-                "keywords", tourPackage, Difficulty.Difficult, Region.Northern_California);
-        TourRating tourRating = new TourRating(tour, 1234, 5);
-        RatingDto ratingDto = new RatingDto(tourRating);
-        service.createTourRating(tour, ratingDto);
+        assertThrows(NoSuchElementException.class, () -> service.verifyTour(NOT_A_TOUR_ID));
     }
 
     //Happy Path many customers Rate one tour
@@ -83,32 +72,32 @@ public class TourRatingServiceIntegrationTest {
     public void rateMany() {
         int ratings = service.lookupAll().size();
         service.rateMany(TOUR_ID, 5, new Integer[]{100, 101, 102});
-        assertEquals(service.lookupAll().size(), is(ratings + 3));
+        assertThat(service.lookupAll().size(), is(ratings + 3));
     }
 
-    //Unhappy Path, 2nd Invocation would create duplicates in the database, DataIntegrityViolationException thrown
-    @Test(expected = DataIntegrityViolationException.class)
-    public void rateManyProveRollback() {
+    //Unhappy Path, 2nd Invocation would create duplicates in the database, the customers are skipped
+    @Test
+    public void rateManySkipsDuplicates() {
         int ratings = service.lookupAll().size();
         Integer customers[] = {100, 101, 102};
         service.rateMany(TOUR_ID, 3, customers);
-        service.rateMany(TOUR_ID, 3, customers);
+        BulkRatingResult result = service.rateMany(TOUR_ID, 3, customers);
+        assertEquals(result.getCreated(), 0);
+        assertEquals(result.getSkipped().size(), customers.length);
+        assertEquals(service.lookupAll().size(), ratings + 3);
     }
 
     //Happy Path, Update a Tour Rating already in the database
     @Test
     public void update() {
-
-        TourPackage tourPackage = new TourPackage ("xx", "mock_valid");
-        Tour tour = new Tour("valid_tour", "description", "blurb", 3000, "duration", "bullets",
-                "keywords", tourPackage, Difficulty.Easy, Region.Southern_California);
-        TourRating tourRating = new TourRating(tour, CUSTOMER_ID, 3);
-        RatingDto ratingDto = new RatingDto(tourRating);
-
-        createNewException();
-        ratingDto = service.update(tourRating, ratingDto);
-        assertEquals(tourRating.getTour().getId(), is(TOUR_ID));
-        assertEquals(tourRating.getCustomerId(), is(CUSTOMER_ID));
-        assertEquals(tourRating.getScore(), is(3));
+        Tour tour = service.verifyTour(TOUR_ID);
+        service.createTourRating(tour, new RatingDto(2, "it was fair", CUSTOMER_ID));
+        TourRating tourRating = service.verifyTourRating(tour, CUSTOMER_ID);
+
+        service.update(tourRating, new RatingDto(3, "it was good", CUSTOMER_ID));
+        tourRating = service.verifyTourRating(tour, CUSTOMER_ID);
+        assertThat(tourRating.getTour().getId(), is(TOUR_ID));
+        assertThat(tourRating.getCustomerId(), is(CUSTOMER_ID));
+        assertThat(tourRating.getScore(), is(3));
     }
 }
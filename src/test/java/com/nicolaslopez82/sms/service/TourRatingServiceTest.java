@@ -2,21 +2,23 @@ package com.nicolaslopez82.sms.service;
 
 import com.nicolaslopez82.sms.domain.Tour;
 import com.nicolaslopez82.sms.domain.TourRating;
+import com.nicolaslopez82.sms.repository.TourRatingJdbcRepository;
 import com.nicolaslopez82.sms.repository.TourRatingRepository;
 import com.nicolaslopez82.sms.repository.TourRepository;
+import com.nicolaslopez82.sms.web.BulkRatingResult;
 import com.nicolaslopez82.sms.web.RatingDto;
-import org.junit.Before;
-import org.junit.Ignore;
-import org.junit.Test;
-import org.junit.runner.RunWith;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
-import org.mockito.junit.MockitoJUnitRunner;
+import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
@@ -24,7 +26,7 @@ import java.util.Optional;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.Mockito.*;
 
-@RunWith(MockitoJUnitRunner.class)
+@ExtendWith(MockitoExtension.class)
 public class TourRatingServiceTest {
 
     private static final int CUSTOMER_ID = 123;
@@ -35,8 +37,13 @@ public class TourRatingServiceTest {
     private TourRepository tourRepositoryMock;
     @Mock
     private TourRatingRepository tourRatingRepositoryMock;
+    @Mock
+    private TourRatingAggregates tourRatingAggregatesMock;
+    @Mock
+    private TourRatingJdbcRepository tourRatingJdbcRepositoryMock;
+    @Mock
+    private TourLeaderboard tourLeaderboardMock;
 
-    @InjectMocks //Autowire TourRatingService(tourRatingRepositoryMock, tourRepositoryMock)
     private TourRatingService service;
 
     @Mock
@@ -49,10 +56,13 @@ public class TourRatingServiceTest {
     /**
      * Mock responses to commonly invoked methods.
      */
-    @Before
+    @BeforeEach
     public void setupReturnValuesOfMockMethods(){
-        when(tourRepositoryMock.findById(TOUR_ID)).thenReturn(Optional.of(tourMock));
-        when(tourMock.getId()).thenReturn(TOUR_ID);
+        service = new TourRatingService(tourRatingRepositoryMock, tourRepositoryMock, tourRatingAggregatesMock,
+                tourRatingJdbcRepositoryMock, tourLeaderboardMock, 500);
+        //not every test reads them
+        lenient().when(tourRepositoryMock.findById(TOUR_ID)).thenReturn(Optional.of(tourMock));
+        lenient().when(tourMock.getId()).thenReturn(TOUR_ID);
 //        when(tourRatingRepositoryMock.findByTourIdAndCustomerId(TOUR_ID, CUSTOMER_ID)).thenReturn(Optional.of(tourRatingMock));
 //        when(tourRatingRepositoryMock.findByTourId(TOUR_ID)).thenReturn(Arrays.asList(tourRatingMock));
     }
@@ -79,9 +89,8 @@ public class TourRatingServiceTest {
     }
 
     @Test
-    @Ignore
     public void getAverageScore() {
-        when(tourRatingMock.getScore()).thenReturn(10);
+        when(tourRatingAggregatesMock.get(TOUR_ID)).thenReturn(RatingAggregate.EMPTY.plus(10));
 
         //invoke and verify getAverage rating.
         Map<String, Double> map = new HashMap<>();
@@ -106,7 +115,7 @@ public class TourRatingServiceTest {
      *
      **************************************************************************************/
     @Test
-    @Ignore
+    @Disabled
     public void delete(){
         //invoke delete
         service.delete(tourRatingMock, CUSTOMER_ID);
@@ -116,15 +125,27 @@ public class TourRatingServiceTest {
 
     @Test
     public void rateMany(){
-        //invoke rateMany
-        service.rateMany(TOUR_ID, 10, new Integer[]{CUSTOMER_ID, CUSTOMER_ID + 1});
-
-        //verify tourRatingRepository.save invoked twice.
-        verify(tourRatingRepositoryMock, times(2)).save(any(TourRating.class));
+        when(tourRatingJdbcRepositoryMock.findCustomerIds(eq(TOUR_ID), anyList(), anyInt()))
+                .thenReturn(Collections.singletonList(CUSTOMER_ID));
+        when(tourRatingJdbcRepositoryMock.insertAll(eq(TOUR_ID), eq(10), anyString(), anyList(), anyInt()))
+                .thenReturn(Collections.emptyList());
+
+        //invoke rateMany, CUSTOMER_ID already rated the tour and CUSTOMER_ID + 1 is repeated.
+        BulkRatingResult result = service.rateMany(TOUR_ID, 10,
+                new Integer[]{CUSTOMER_ID, CUSTOMER_ID + 1, CUSTOMER_ID + 1});
+
+        //verify only CUSTOMER_ID + 1 is inserted in one batch.
+        verify(tourRatingJdbcRepositoryMock).insertAll(eq(TOUR_ID), eq(10), anyString(),
+                eq(Collections.singletonList(CUSTOMER_ID + 1)), anyInt());
+        assertEquals(result.getCreated(), 1);
+        assertEquals(result.getSkipped(), Arrays.asList(CUSTOMER_ID + 1, CUSTOMER_ID));
+
+        //verify the aggregates recorded the created rating.
+        verify(tourRatingAggregatesMock).added(TOUR_ID, 10, 1);
     }
 
     @Test
-    @Ignore
+    @Disabled
     public void update(){
         //invoke update
         service.update(tourRatingMock, ratingDtoMock);
@@ -138,7 +159,7 @@ public class TourRatingServiceTest {
     }
 
     @Test
-    @Ignore
+    @Disabled
     public void updateWithPatch() {
         //invoke updateSome
         service.updateWithPatch(tourRatingMock, ratingDtoMock);
@@ -160,7 +181,7 @@ public class TourRatingServiceTest {
      *************************************************************************************/
 
     @Test
-    @Ignore
+    @Disabled
     public void createTourRating(){
         //prepare to capture a TourRating Object.
         ArgumentCaptor<TourRating> tourRatingArgumentCaptor = ArgumentCaptor.forClass(TourRating.class);
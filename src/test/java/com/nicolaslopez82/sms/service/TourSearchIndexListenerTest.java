@@ -0,0 +1,75 @@
+package com.nicolaslopez82.sms.service;
+
+import com.nicolaslopez82.sms.domain.Tour;
+import com.nicolaslopez82.sms.repository.TourRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Tours indexed by TourSearchIndexListener, on the embedded database.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("statements")
+public class TourSearchIndexListenerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TourRepository tourRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private String rename(int tourId, String title) {
+        return transactionTemplate.execute(status -> {
+            Tour tour = tourRepository.findById(tourId).get();
+            String old = tour.getTitle();
+            tour.setTitle(title);
+            return old;
+        });
+    }
+
+    @Test
+    public void searchAfterAnUpdate() throws Exception {
+        String title = rename(1, "Renamed by the listener test");
+        try {
+            mockMvc.perform(get("/tours/search").param("q", "renamed listener"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.total").value(1))
+                    .andExpect(jsonPath("$.tours[0].tourPackage.name").isNotEmpty());
+        } finally {
+            rename(1, title);
+        }
+    }
+
+    @Test
+    public void rolledBackUpdateIsNotIndexed() throws Exception {
+        transactionTemplate.execute(status -> {
+            Tour tour = tourRepository.findById(1).get();
+            tour.setTitle("Rolled back by the listener test");
+            entityManager.flush();
+            status.setRollbackOnly();
+            return null;
+        });
+        mockMvc.perform(get("/tours/search").param("q", "rolled listener"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total").value(0));
+    }
+}
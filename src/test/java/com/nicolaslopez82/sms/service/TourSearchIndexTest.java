@@ -0,0 +1,79 @@
+package com.nicolaslopez82.sms.service;
+
+import com.nicolaslopez82.sms.domain.Difficulty;
+import com.nicolaslopez82.sms.domain.Region;
+import com.nicolaslopez82.sms.domain.Tour;
+import com.nicolaslopez82.sms.domain.TourPackage;
+import com.nicolaslopez82.sms.repository.TourRepository;
+import com.nicolaslopez82.sms.web.TourSearchResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class TourSearchIndexTest {
+
+    private TourSearchIndex index = new TourSearchIndex(mock(TourRepository.class));
+
+    private static Tour tour(int id, String keywords, int price, String code, Difficulty difficulty, Region region) {
+        Tour tour = mock(Tour.class);
+        when(tour.getId()).thenReturn(id);
+        when(tour.getTitle()).thenReturn("Tour " + id);
+        when(tour.getKeywords()).thenReturn(keywords);
+        when(tour.getPrice()).thenReturn(price);
+        when(tour.getTourPackage()).thenReturn(new TourPackage(code, code));
+        when(tour.getDifficulty()).thenReturn(difficulty);
+        when(tour.getRegion()).thenReturn(region);
+        return tour;
+    }
+
+    @BeforeEach
+    public void indexTours() {
+        index.index(tour(1, "Hiking, National Parks, Big Sur", 750, "BC", Difficulty.Medium, Region.Central_Coast));
+        index.index(tour(2, "Hiking, Yosemite", 600, "BC", Difficulty.Difficult, Region.Northern_California));
+        index.index(tour(3, "Wine, Hot Springs", 300, "CH", Difficulty.Easy, Region.Central_Coast));
+    }
+
+    @Test
+    public void searchIntersectsFilters() {
+        TourSearchResult result = index.search("HIKING", Collections.singletonList(Region.Central_Coast),
+                null, null, null, null, 10);
+        assertEquals(result.getTotal(), 1);
+        assertEquals(result.getTours().get(0).getId(), 1);
+
+        result = index.search(null, null, null, Arrays.asList("BC", "CH"), 300, 600, 10);
+        assertEquals(result.getTotal(), 2);
+        assertEquals(result.getFacets().get("region").get("Central_Coast"), 1);
+        assertEquals(result.getFacets().get("region").get("Northern_California"), 1);
+        assertEquals(result.getFacets().get("tourPackage").get("CH"), 1);
+    }
+
+    @Test
+    public void reindexAndRemove() {
+        index.index(tour(3, "Wine", 300, "CH", Difficulty.Easy, Region.Central_Coast));
+        assertEquals(index.search("springs", null, null, null, null, null, 10).getTotal(), 0);
+
+        index.remove(1);
+        assertEquals(index.search("hiking", null, null, null, null, null, 10).getTotal(), 1);
+        assertEquals(index.search(null, null, null, null, null, null, 1).getTours().size(), 1);
+    }
+
+    @Test
+    public void removedSlotIsClearedAndReused() {
+        index.remove(1);
+        index.index(tour(4, "Desert", 100, "DV", Difficulty.Easy, Region.Varies));
+
+        assertEquals(index.search("hiking", null, null, null, null, null, 10).getTotal(), 1);
+        TourSearchResult result = index.search(null, null, null, null, null, null, 10);
+        assertEquals(result.getTotal(), 3);
+        assertEquals(result.getTours().get(0).getId(), 4);
+        assertEquals(result.getFacets().get("region").get("Central_Coast"), 1);
+        assertEquals(result.getFacets().get("tourPackage").get("BC"), 1);
+        assertEquals(index.search(null, null, null, null, 700, null, 10).getTotal(), 0);
+    }
+}
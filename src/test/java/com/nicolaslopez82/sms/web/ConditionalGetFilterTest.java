@@ -0,0 +1,135 @@
+package com.nicolaslopez82.sms.web;
+
+import com.nicolaslopez82.sms.domain.Tour;
+import com.nicolaslopez82.sms.domain.TourRating;
+import com.nicolaslopez82.sms.repository.TourRepository;
+import com.nicolaslopez82.sms.service.TourRatingService;
+import com.nicolaslopez82.sms.service.TourVersions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * ETags, Last-Modified and Cache-Control of the catalog and rating reads, on the embedded database.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("statements")
+public class ConditionalGetFilterTest {
+
+    private static final int CUSTOMER_ID = 777;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TourRatingService tourRatingService;
+
+    @Autowired
+    private TourRepository tourRepository;
+
+    @Autowired
+    private TourVersions tourVersions;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private String etag(String path) throws Exception {
+        String etag = mockMvc.perform(get(path))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotNull(etag);
+        return etag;
+    }
+
+    @Test
+    public void averageNotModified() throws Exception {
+        String etag = etag("/tours/1/ratings/average");
+        StatementCounter.reset();
+        mockMvc.perform(get("/tours/1/ratings/average").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache"));
+        assertTrue(StatementCounter.statements().isEmpty());
+    }
+
+    @Test
+    public void ratingMutationsChangeTheEtag() throws Exception {
+        String etag = etag("/tours/1/ratings");
+        Tour tour = tourRatingService.verifyTour(1);
+        tourRatingService.createTourRating(tour, new RatingDto(3, "etag", CUSTOMER_ID));
+        TourRating created = tourRatingService.verifyTourRating(tour, CUSTOMER_ID);
+        tourRatingService.delete(created, CUSTOMER_ID);
+        String changed = mockMvc.perform(get("/tours/1/ratings").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotEquals(etag, changed);
+        assertEquals(etag("/tours/2/ratings"), etag("/tours/2/ratings"));
+    }
+
+    @Test
+    public void catalogNotModified() throws Exception {
+        String etag = mockMvc.perform(get("/packages"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.LAST_MODIFIED))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=60"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        StatementCounter.reset();
+        mockMvc.perform(get("/packages").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get("/tours/1").header(HttpHeaders.IF_MODIFIED_SINCE, System.currentTimeMillis()))
+                .andExpect(status().isNotModified());
+        assertTrue(StatementCounter.statements().isEmpty());
+    }
+
+    @Test
+    public void catalogChangesOnCommit() throws Exception {
+        String etag = etag("/packages");
+        transactionTemplate.execute(status -> {
+            tourRepository.findById(2).get().setBlurb("Rolled back");
+            entityManager.flush();
+            assertEquals(etag, "\"" + tourVersions.catalogTag() + "\"");
+            status.setRollbackOnly();
+            return null;
+        });
+        assertEquals(etag, etag("/packages"));
+
+        String blurb = transactionTemplate.execute(status -> {
+            Tour tour = tourRepository.findById(2).get();
+            String old = tour.getBlurb();
+            tour.setBlurb("Committed");
+            return old;
+        });
+        assertNotEquals(etag, etag("/packages"));
+        transactionTemplate.execute(status -> {
+            tourRepository.findById(2).get().setBlurb(blurb);
+            return null;
+        });
+    }
+
+    @Test
+    public void unknownTourNotValidated() throws Exception {
+        mockMvc.perform(get("/tours/999/ratings/average").header(HttpHeaders.IF_NONE_MATCH, "*"))
+                .andExpect(status().isNotFound())
+                .andExpect(header().doesNotExist(HttpHeaders.ETAG));
+    }
+}
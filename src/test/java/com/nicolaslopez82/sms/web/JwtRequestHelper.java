@@ -52,6 +52,19 @@ public class JwtRequestHelper {
         return new HttpEntity(forUser(username, withRoleId));
     }
 
+    /**
+     * Build the Authorization header value for logged in user, e.g. for a MockMvc request.
+     *
+     * @param username username
+     * @param withRoleId role identifier
+     * @return Bearer token
+     */
+    public static String bearer(String username, String withRoleId) {
+        Role r = new Role();
+        r.setRoleName(withRoleId);
+        return "Bearer " + jwtProvider.createToken(username, Arrays.asList(r));
+    }
+
     /**
      * Generate the appropriate headers for JWT Authentication.
      *
@@ -61,11 +74,8 @@ public class JwtRequestHelper {
      */
     private static HttpHeaders forUser(String username, String withRoleId){
         HttpHeaders headers = new HttpHeaders();
-        Role r = new Role();
-        r.setRoleName(withRoleId);
-        String token =  jwtProvider.createToken(username, Arrays.asList(r));
         headers.setContentType(APPLICATION_JSON);
-        headers.add("Authorization", "Bearer " + token);
+        headers.add("Authorization", bearer(username, withRoleId));
         return headers;
     }
 
@@ -77,11 +87,8 @@ public class JwtRequestHelper {
      */
     public  HttpHeaders withRole(String roleName){
         HttpHeaders headers = new HttpHeaders();
-        Role r = new Role();
-        r.setRoleName(roleName);
-        String token =  jwtProvider.createToken("anonymous", Arrays.asList(r));
         headers.setContentType(APPLICATION_JSON);
-        headers.add("Authorization", "Bearer " + token);
+        headers.add("Authorization", bearer("anonymous", roleName));
         return headers;
     }
 }
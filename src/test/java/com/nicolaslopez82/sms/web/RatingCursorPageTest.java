@@ -0,0 +1,21 @@
+package com.nicolaslopez82.sms.web;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class RatingCursorPageTest {
+
+    @Test
+    public void encodeDecodeCursor() {
+        assertEquals(RatingCursorPage.decodeCursor(RatingCursorPage.encodeCursor(42)), 42);
+        assertEquals(RatingCursorPage.decodeCursor(RatingCursorPage.encodeCursor(Integer.MAX_VALUE)), Integer.MAX_VALUE);
+    }
+
+    @Test
+    public void invalidCursor() {
+        assertThrows(IllegalArgumentException.class, () -> RatingCursorPage.decodeCursor("zzz"));
+        assertThrows(IllegalArgumentException.class, () -> RatingCursorPage.decodeCursor("!"));
+    }
+}
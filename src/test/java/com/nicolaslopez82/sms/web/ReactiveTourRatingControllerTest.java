@@ -0,0 +1,100 @@
+package com.nicolaslopez82.sms.web;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.Collections;
+
+import static com.nicolaslopez82.sms.web.JwtRequestHelper.bearer;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Reactive ratings API on the embedded database, read through R2DBC.
+ * The stream is read over HTTP, as its rows are written on another thread while MockMvc still handles the response.
+ */
+@SpringBootTest(webEnvironment = RANDOM_PORT)
+@AutoConfigureMockMvc
+@ActiveProfiles("statements")
+public class ReactiveTourRatingControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    private MvcResult started(String path, MediaType accept) throws Exception {
+        return mockMvc.perform(get(path).header("Authorization", bearer("csr_jane", "ROLE_CSR")).accept(accept))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+    }
+
+    @Test
+    public void getRatingsRequiresToken() throws Exception {
+        mockMvc.perform(get("/rx/tours/1/ratings")).andExpect(status().isForbidden());
+    }
+
+    @Test
+    public void getRatings() throws Exception {
+        mockMvc.perform(asyncDispatch(started("/rx/tours/1/ratings", MediaType.APPLICATION_JSON)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].customerId").value(4))
+                .andExpect(jsonPath("$[0].score").value(5));
+    }
+
+    @Test
+    public void streamRatings() throws Exception {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("Authorization", bearer("csr_jane", "ROLE_CSR"));
+        headers.setAccept(Collections.singletonList(MediaType.APPLICATION_STREAM_JSON));
+        ResponseEntity<String> response = restTemplate.exchange("/rx/tours/1/ratings", HttpMethod.GET,
+                new HttpEntity<>(headers), String.class);
+        assertEquals(200, response.getStatusCodeValue());
+        assertTrue(MediaType.APPLICATION_STREAM_JSON.isCompatibleWith(response.getHeaders().getContentType()));
+        assertTrue(response.getBody().startsWith("{\"score\":5,"));
+    }
+
+    @Test
+    public void getAverage() throws Exception {
+        mockMvc.perform(asyncDispatch(started("/rx/tours/1/ratings/average", MediaType.APPLICATION_JSON)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.average").value(5.0));
+    }
+
+    @Test
+    public void getRating() throws Exception {
+        mockMvc.perform(asyncDispatch(started("/rx/tours/1/ratings/4", MediaType.APPLICATION_JSON)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.comment").value("I loved it"));
+    }
+
+    @Test
+    public void getRatingNotFound() throws Exception {
+        mockMvc.perform(asyncDispatch(started("/rx/tours/1/ratings/999", MediaType.APPLICATION_JSON)))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void getRatingsOfUnknownTour() throws Exception {
+        mockMvc.perform(asyncDispatch(started("/rx/tours/999/ratings", MediaType.APPLICATION_JSON)))
+                .andExpect(status().isNotFound());
+    }
+}
@@ -0,0 +1,30 @@
+package com.nicolaslopez82.sms.web;
+
+import org.junit.jupiter.api.extension.AfterEachCallback;
+import org.junit.jupiter.api.extension.BeforeEachCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.opentest4j.AssertionFailedError;
+
+import java.util.List;
+
+/**
+ * Fail a test annotated with StatementBudget that issues more statements than its budget,
+ * as counted by the StatementCounter.
+ */
+public class StatementBudgetExtension implements BeforeEachCallback, AfterEachCallback {
+
+    @Override
+    public void beforeEach(ExtensionContext context) {
+        StatementCounter.reset();
+    }
+
+    @Override
+    public void afterEach(ExtensionContext context) {
+        StatementBudget budget = context.getRequiredTestMethod().getAnnotation(StatementBudget.class);
+        List<String> statements = StatementCounter.statements();
+        if (budget != null && statements.size() > budget.value()) {
+            throw new AssertionFailedError(String.format("%s issued %d statements, over its budget of %d:%n%s",
+                    context.getDisplayName(), statements.size(), budget.value(), String.join("\n", statements)));
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.nicolaslopez82.sms.web;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static com.nicolaslopez82.sms.web.JwtRequestHelper.bearer;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Number of statements of the read endpoints, on the embedded database: loading an association
+ * once per row (N+1) exceeds the budget of the request.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("statements")
+public class StatementBudgetTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    @StatementBudget(1)
+    public void getAllUsers() throws Exception {
+        mockMvc.perform(get("/users").header("Authorization", bearer("admin", "ROLE_ADMIN")))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    @StatementBudget(2)
+    public void getRatings() throws Exception {
+        mockMvc.perform(get("/tours/1/ratings").param("size", "5")).andExpect(status().isOk());
+    }
+
+    @Test
+    @StatementBudget(1)
+    public void getAllRatingsForTour() throws Exception {
+        mockMvc.perform(get("/tours/1/ratings/ratings/tour")).andExpect(status().isOk());
+    }
+
+    @Test
+    @StatementBudget(1)
+    public void getRatingsAfterCursor() throws Exception {
+        mockMvc.perform(get("/tours/1/ratings/cursor").param("size", "5")).andExpect(status().isOk());
+    }
+
+    @Test
+    @StatementBudget(0)
+    public void getDistribution() throws Exception {
+        mockMvc.perform(get("/tours/1/ratings/distribution")).andExpect(status().isOk());
+    }
+
+    @Test
+    @StatementBudget(0)
+    public void searchTours() throws Exception {
+        mockMvc.perform(get("/tours/search").param("q", "wine")).andExpect(status().isOk());
+    }
+
+    @Test
+    @StatementBudget(2)
+    public void getToursPage() throws Exception {
+        mockMvc.perform(get("/tours").param("size", "20")).andExpect(status().isOk());
+    }
+}
@@ -0,0 +1,29 @@
+package com.nicolaslopez82.sms.web;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hibernate StatementInspector recording the SQL statements prepared by each thread.
+ * A MockMvc request runs on the test thread, so the statements of the background tasks are not counted.
+ */
+public class StatementCounter implements StatementInspector {
+
+    private static final ThreadLocal<List<String>> STATEMENTS = ThreadLocal.withInitial(ArrayList::new);
+
+    @Override
+    public String inspect(String sql) {
+        STATEMENTS.get().add(sql);
+        return sql;
+    }
+
+    static void reset() {
+        STATEMENTS.get().clear();
+    }
+
+    static List<String> statements() {
+        return new ArrayList<>(STATEMENTS.get());
+    }
+}
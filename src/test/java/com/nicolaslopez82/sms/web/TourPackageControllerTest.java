@@ -0,0 +1,79 @@
+package com.nicolaslopez82.sms.web;
+
+import com.nicolaslopez82.sms.domain.TourPackage;
+import com.nicolaslopez82.sms.repository.TourPackageJdbcRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static com.nicolaslopez82.sms.web.JwtRequestHelper.bearer;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Bulk creation of Tour Packages on the embedded database.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("statements")
+public class TourPackageControllerTest {
+
+    private static final String PACKAGES = "[{\"code\":\"BC\",\"name\":\"Backpack Cal\"},"
+            + "{\"code\":\"Y1\",\"name\":\"Yosemite One\"},{\"code\":\"Y2\",\"name\":\"Yosemite Two\"},"
+            + "{\"code\":\"Y1\",\"name\":\"Yosemite Again\"}]";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TourPackageJdbcRepository tourPackageJdbcRepository;
+
+    @Test
+    public void createTourPackages() throws Exception {
+        mockMvc.perform(post("/packages:bulk").header("Authorization", bearer("admin", "ROLE_ADMIN"))
+                .contentType(MediaType.APPLICATION_JSON).content(PACKAGES))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.created").value(2))
+                .andExpect(jsonPath("$.unchanged").value(2));
+        mockMvc.perform(post("/packages:bulk").header("Authorization", bearer("admin", "ROLE_ADMIN"))
+                .contentType(MediaType.APPLICATION_JSON).content(PACKAGES))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.created").value(0))
+                .andExpect(jsonPath("$.unchanged").value(4));
+        mockMvc.perform(get("/packages/Y1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("Yosemite One"));
+    }
+
+    @Test
+    public void concurrentlyCreatedPackageIsRejected() throws Exception {
+        assertEquals(Collections.singletonList("CC"), tourPackageJdbcRepository.insertAll(Arrays.asList(
+                new TourPackage("Y3", "Yosemite Three"), new TourPackage("CC", "California Calm"))));
+        mockMvc.perform(get("/packages/Y3")).andExpect(status().isOk());
+    }
+
+    @Test
+    public void invalidTourPackage() throws Exception {
+        mockMvc.perform(post("/packages:bulk").header("Authorization", bearer("admin", "ROLE_ADMIN"))
+                .contentType(MediaType.APPLICATION_JSON).content("[{\"code\":\"XYZ\",\"name\":\"Too long\"}]"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void createTourPackagesRequiresAdmin() throws Exception {
+        mockMvc.perform(post("/packages:bulk").header("Authorization", bearer("csr_jane", "ROLE_CSR"))
+                .contentType(MediaType.APPLICATION_JSON).content(PACKAGES))
+                .andExpect(status().isForbidden());
+    }
+}
@@ -0,0 +1,34 @@
+package com.nicolaslopez82.sms.web;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Parameters of the tour search, on the embedded database.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("statements")
+public class TourSearchControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    public void regionByNameOrLabel() throws Exception {
+        mockMvc.perform(get("/tours/search").param("region", "Central_Coast")).andExpect(status().isOk());
+        mockMvc.perform(get("/tours/search").param("region", "Central Coast")).andExpect(status().isOk());
+    }
+
+    @Test
+    public void unknownRegion() throws Exception {
+        mockMvc.perform(get("/tours/search").param("region", "Nowhere")).andExpect(status().isBadRequest());
+    }
+}
@@ -0,0 +1,36 @@
+package com.nicolaslopez82.sms.web;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class VirtualThreadsTest {
+
+    @Test
+    public void startVirtualThreads() throws InterruptedException {
+        assumeTrue(VirtualThreads.isSupported(), "Java 21 or later");
+        AtomicBoolean virtual = new AtomicBoolean();
+        Thread thread = VirtualThreads.factory("test-vt-", "").newThread(
+                () -> virtual.set(VirtualThreads.isVirtual(Thread.currentThread())));
+        thread.start();
+        thread.join();
+
+        assertEquals(thread.getName(), "test-vt-0");
+        assertTrue(virtual.get());
+        assertFalse(VirtualThreads.isVirtual(Thread.currentThread()));
+    }
+
+    @Test
+    public void failWithoutVirtualThreads() {
+        assumeFalse(VirtualThreads.isSupported(), "before Java 21");
+        assertFalse(VirtualThreads.isVirtual(Thread.currentThread()));
+        assertThrows(IllegalStateException.class, () -> VirtualThreads.factory("test-vt-", ""));
+    }
+}